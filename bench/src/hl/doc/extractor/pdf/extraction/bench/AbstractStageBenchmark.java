@@ -0,0 +1,170 @@
+package hl.doc.extractor.pdf.extraction.bench;
+
+import java.awt.geom.Path2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
+import hl.doc.extractor.pdf.extraction.util.ContentUtil;
+import hl.doc.extractor.pdf.extraction.util.ContentUtil.SORT;
+import hl.doc.extractor.pdf.extraction.util.DataUtil;
+import hl.doc.extractor.pdf.extraction.util.ExtractionUtil;
+import hl.doc.extractor.pdf.extraction.util.base.ImageExtractUtil;
+import hl.doc.extractor.pdf.extraction.util.base.PageContentEngine;
+import hl.doc.extractor.pdf.extraction.util.base.TextExtractUtil;
+import hl.doc.extractor.pdf.extraction.util.base.VectorContentCollector;
+import hl.doc.extractor.pdf.extraction.util.base.VectorExtractUtil;
+
+/**
+ * Each extraction stage measured on its own, over all pages of the document.
+ * <br>
+ * Inputs of the in-memory stages (stitching, grouping, sorting & plain text export)
+ * are extracted once in setup, so only the stage itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractStageBenchmark {
+
+	private static SORT[] DEFAULT_SORTING = new SORT[] {SORT.BY_PAGE, SORT.BY_Y, SORT.BY_X};
+
+	protected PDDocument pdf_doc = null;
+
+	// per page, the visible paths before stitching
+	private List<List<Path2D>> listPagePaths 	= new ArrayList<>();
+	// per page, the stitched shapes before grouping
+	private List<List<Path2D>> listPageShapes 	= new ArrayList<>();
+	private List<ContentItem> listAllItems 		= new ArrayList<>();
+	private List<ContentItem> listSortedItems 	= null;
+
+	abstract protected PDDocument loadDocument() throws IOException;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		pdf_doc = loadDocument();
+
+		for(int iPageIdx=0; iPageIdx<pdf_doc.getNumberOfPages(); iPageIdx++)
+		{
+			PageContentEngine engine = new PageContentEngine(pdf_doc.getPage(iPageIdx), iPageIdx+1);
+			VectorContentCollector vectorCollector = new VectorContentCollector(true);
+			engine.addCollector(vectorCollector);
+			engine.processPage();
+
+			listPagePaths.add(vectorCollector.getPaths());
+			listPageShapes.add(VectorExtractUtil.stitchListIntoShapes(vectorCollector.getPaths()));
+
+			Map<Type, List<ContentItem>> mapPageItems = ExtractionUtil.extractPageContent(
+					pdf_doc, iPageIdx, null, true, true, true, false);
+			for(List<ContentItem> listItems : mapPageItems.values())
+			{
+				listAllItems.addAll(listItems);
+			}
+		}
+		listSortedItems = ContentUtil.sortContentItems(new ArrayList<>(listAllItems), DEFAULT_SORTING);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException
+	{
+		if(pdf_doc!=null)
+			pdf_doc.close();
+	}
+
+	////
+
+	@Benchmark
+	public void extractPageContent(Blackhole aBlackhole) throws IOException
+	{
+		for(int iPageIdx=0; iPageIdx<pdf_doc.getNumberOfPages(); iPageIdx++)
+		{
+			aBlackhole.consume(ExtractionUtil.extractPageContent(
+					pdf_doc, iPageIdx, null, true, true, true, false));
+		}
+	}
+
+	@Benchmark
+	public void extractTextContentByAreas(Blackhole aBlackhole) throws IOException
+	{
+		for(int iPageIdx=0; iPageIdx<pdf_doc.getNumberOfPages(); iPageIdx++)
+		{
+			aBlackhole.consume(TextExtractUtil.extractTextContentByAreas(pdf_doc, iPageIdx, null));
+		}
+	}
+
+	@Benchmark
+	public void extractImageContent(Blackhole aBlackhole) throws IOException
+	{
+		for(int iPageIdx=0; iPageIdx<pdf_doc.getNumberOfPages(); iPageIdx++)
+		{
+			aBlackhole.consume(ImageExtractUtil.extractImageContent(pdf_doc, iPageIdx, false));
+		}
+	}
+
+	@Benchmark
+	public void extractVectorContent(Blackhole aBlackhole) throws IOException
+	{
+		for(int iPageIdx=0; iPageIdx<pdf_doc.getNumberOfPages(); iPageIdx++)
+		{
+			aBlackhole.consume(VectorExtractUtil.extractVectorContent(pdf_doc, iPageIdx, true));
+		}
+	}
+
+	@Benchmark
+	public void stitchListIntoShapes(Blackhole aBlackhole)
+	{
+		for(List<Path2D> listPaths : listPagePaths)
+		{
+			aBlackhole.consume(VectorExtractUtil.stitchListIntoShapes(listPaths));
+		}
+	}
+
+	@Benchmark
+	public void groupByBounds(Blackhole aBlackhole)
+	{
+		for(int iPageIdx=0; iPageIdx<listPageShapes.size(); iPageIdx++)
+		{
+			// grouped shapes are appended into, work on copies
+			List<Path2D> listShapes = new ArrayList<>();
+			for(Path2D shape : listPageShapes.get(iPageIdx))
+			{
+				listShapes.add(new Path2D.Double(shape));
+			}
+			aBlackhole.consume(VectorExtractUtil.groupByBounds(iPageIdx, listShapes, 4, 0.80f));
+		}
+	}
+
+	@Benchmark
+	public List<ContentItem> sortContentItems()
+	{
+		// sorted in place, work on a copy
+		return ContentUtil.sortContentItems(new ArrayList<>(listAllItems), DEFAULT_SORTING);
+	}
+
+	@Benchmark
+	public String toPlainTextFormat()
+	{
+		return DataUtil.toPlainTextFormat(listSortedItems);
+	}
+}
@@ -0,0 +1,24 @@
+package hl.doc.extractor.pdf.extraction.bench;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Stages measured on the sample pdfs, from folder -Dbench.pdf.dir (default test/pdf)
+ */
+public class SamplePDFBenchmark extends AbstractStageBenchmark {
+
+	@Param({"PDF-TEST-01.pdf", "PDF-TEST-02.pdf", "PDF-TEST-03.pdf", "PDF-TEST-04.pdf"})
+	public String pdf_file;
+
+	@Override
+	protected PDDocument loadDocument() throws IOException
+	{
+		File folderPDF = new File(System.getProperty("bench.pdf.dir", "test/pdf"));
+		return Loader.loadPDF(new File(folderPDF, pdf_file));
+	}
+}
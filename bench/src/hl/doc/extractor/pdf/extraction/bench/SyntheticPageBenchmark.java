@@ -0,0 +1,114 @@
+package hl.doc.extractor.pdf.extraction.bench;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Stages measured on a generated A4 page, to see how each stage scales
+ * with the number of text lines, vector boxes and images on a page.
+ */
+public class SyntheticPageBenchmark extends AbstractStageBenchmark {
+
+	@Param({"50", "500"})
+	public int text_lines;
+
+	// each box is drawn as 4 separate line segments, to be stitched back
+	@Param({"50", "500"})
+	public int vector_boxes;
+
+	@Param({"0", "10"})
+	public int images;
+
+	@Override
+	protected PDDocument loadDocument() throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(PDDocument doc = new PDDocument())
+		{
+			createPage(doc);
+			doc.save(out);
+		}
+		// reloaded, so that the page is parsed the same way as a pdf file
+		return Loader.loadPDF(out.toByteArray());
+	}
+
+	private void createPage(PDDocument doc) throws IOException
+	{
+		PDPage page = new PDPage(PDRectangle.A4);
+		doc.addPage(page);
+
+		float fPageWidth 	= page.getMediaBox().getWidth();
+		float fPageHeight 	= page.getMediaBox().getHeight();
+		float fMargin 		= 36;
+		float fLineHeight 	= Math.min(14, (fPageHeight - fMargin*2) / Math.max(1, this.text_lines));
+
+		try(PDPageContentStream content = new PDPageContentStream(doc, page))
+		{
+			PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+			for(int i=0; i<this.text_lines; i++)
+			{
+				content.beginText();
+				content.setFont(font, fLineHeight * 0.8f);
+				content.newLineAtOffset(fMargin, fPageHeight - fMargin - (i+1)*fLineHeight);
+				content.showText("Line "+(i+1)+" of the synthetic page, the quick brown fox jumps over the lazy dog.");
+				content.endText();
+			}
+
+			// boxes in a grid
+			int iCols 		= (int) Math.ceil(Math.sqrt(Math.max(1, this.vector_boxes)));
+			float fCellW 	= (fPageWidth - fMargin*2) / iCols;
+			float fCellH 	= (fPageHeight - fMargin*2) / iCols;
+			content.setLineWidth(0.5f);
+			for(int i=0; i<this.vector_boxes; i++)
+			{
+				float x1 = fMargin + (i % iCols) * fCellW + 1;
+				float y1 = fMargin + (i / iCols) * fCellH + 1;
+				float x2 = x1 + fCellW - 2;
+				float y2 = y1 + fCellH - 2;
+				drawLine(content, x1, y1, x2, y1);
+				drawLine(content, x2, y1, x2, y2);
+				drawLine(content, x2, y2, x1, y2);
+				drawLine(content, x1, y2, x1, y1);
+			}
+
+			for(int i=0; i<this.images; i++)
+			{
+				PDImageXObject image = LosslessFactory.createFromImage(doc, createGradientImage(64, 48, i));
+				content.drawImage(image, fMargin + (i % 5) * 100, fMargin + (i / 5) * 80, 64, 48);
+			}
+		}
+	}
+
+	private static void drawLine(PDPageContentStream aContent, float x1, float y1, float x2, float y2) throws IOException
+	{
+		aContent.moveTo(x1, y1);
+		aContent.lineTo(x2, y2);
+		aContent.stroke();
+	}
+
+	// not a solid color, which would be skipped by the image extraction
+	private static BufferedImage createGradientImage(int aWidth, int aHeight, int aSeed)
+	{
+		BufferedImage img = new BufferedImage(aWidth, aHeight, BufferedImage.TYPE_INT_RGB);
+		for(int y=0; y<aHeight; y++)
+		{
+			for(int x=0; x<aWidth; x++)
+			{
+				img.setRGB(x, y, ((x*4 + aSeed*16) & 0xFF) << 16 | ((y*5) & 0xFF) << 8 | ((x+y) & 0xFF));
+			}
+		}
+		return img;
+	}
+}
@@ -13,8 +13,13 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.imageio.ImageIO;
 
@@ -22,6 +27,13 @@ import org.json.JSONObject;
 
 public class ConsoleApp {
 
+	public static String PROP_BATCH_CONCURRENCY = "batch.concurrency";
+	public static String PROP_BATCH_MAXMEM_MB 	= "batch.maxmemory.mb";
+	public static String PROP_PAGE_TIMEOUT_MS 	= "extract.page.timeout.ms";
+	public static String PROP_FILE_TIMEOUT_MS 	= "extract.file.timeout.ms";
+	// rough heap needed to extract a pdf, in multiple of its file size
+	private static long MEM_FACTOR 				= 8;
+
     protected static boolean isConsoleSyntaxOK(String[] args)
     {
     	boolean isSyntaxOK = false;
@@ -62,16 +74,27 @@ public class ConsoleApp {
     }
     
     public static File exportAsFile(ExtractedData aExtractData, File aOutputFile)
+    {
+    	StringBuilder sbLog = new StringBuilder();
+    	File fileOutput = exportAsFile(aExtractData, aOutputFile, sbLog);
+    	System.out.print(sbLog);
+    	return fileOutput;
+    }
+    
+    /**
+     * Same as above, the progress lines are appended to aLog instead of being printed
+     */
+    public static File exportAsFile(ExtractedData aExtractData, File aOutputFile, StringBuilder aLog)
     {
     	boolean isJsonFormat = aOutputFile.getName().toLowerCase().endsWith(".json");
     	String sContent = isJsonFormat? 
     			aExtractData.toJsonFormat(true).toString(4): 
     			aExtractData.toPlainTextFormat(true);
 
-		System.out.println("\tFolder:["+aOutputFile.getParent()+"]");
+		aLog.append("\tFolder:["+aOutputFile.getParent()+"]").append("\n");
 		if(ContentUtil.saveAsFile(aOutputFile, sContent))
 		{
-			System.out.println("\t[saved] "+aOutputFile.getName());
+			aLog.append("\t[saved] "+aOutputFile.getName()).append("\n");
 		}
 		
 		//PDF Layout
@@ -91,7 +114,7 @@ public class ConsoleApp {
 				try {
 					if(ImageIO.write(img, "jpg", fileImg))
 					{
-						System.out.println("\t[saved] "+fileImg.getName());
+						aLog.append("\t[saved] "+fileImg.getName()).append("\n");
 					}
 				} catch (IOException e) {
 					// TODO Auto-generated catch block
@@ -116,7 +139,7 @@ public class ConsoleApp {
 					try {
 						if(ImageIO.write(img, sImgFormat, fileImg))
 						{
-							System.out.println("\t[saved] "+fileImg.getName());
+							aLog.append("\t[saved] "+fileImg.getName()).append("\n");
 						}
 					} catch (IOException e) {
 						// TODO Auto-generated catch block
@@ -149,7 +172,7 @@ public class ConsoleApp {
 				try {
 					if(ImageIO.write(imgVector, "jpg", fileImg))
 					{
-						System.out.println("\t[saved] "+fileImg.getName());
+						aLog.append("\t[saved] "+fileImg.getName()).append("\n");
 					}
 				} catch (IOException e) {
 					// TODO Auto-generated catch block
@@ -161,12 +184,141 @@ public class ConsoleApp {
     	return aOutputFile;
     }
     
+    protected static int extractFile(File aPDFFile, File aFolderSaveOutput, String[] aOutputTypes, int aFileSeq) throws IOException
+    {
+		long lStartTimeMs = System.currentTimeMillis(); 
+		// printed as one block, lines of files extracted concurrently must not interleave
+		StringBuilder sbLog = new StringBuilder();
+		sbLog.append("\n "+aFileSeq+". Extracting "+aPDFFile.getName()+" ...").append("\n");
+		
+        PDFExtractor pdfExtract = null;
+        
+        try {
+	        pdfExtract = new PDFExtractor(aPDFFile);
+	        pdfExtract.setExtractText(true);
+	        pdfExtract.setExtractImage(true);
+	        
+	        pdfExtract.setDetectDocLayout(false);
+	        pdfExtract.setExtractVector(false);
+	        
+	        //Group text by paragraph
+	        pdfExtract.setIsGroupTextVertically(false);
+	        pdfExtract.setCollectMetrics(true);
+	        // a pathological page or file must not stall the batch
+	        pdfExtract.setPageTimeoutMs(Long.getLong(PROP_PAGE_TIMEOUT_MS, 0));
+	        pdfExtract.setDocumentTimeoutMs(Long.getLong(PROP_FILE_TIMEOUT_MS, 0));
+	        
+	        ExtractedData content = pdfExtract.extractAll();
+	        
+	        MetaData metaData = content.getMetaData();
+	        sbLog.append("    - Metrics : "+content.getExtractionMetrics()).append("\n");
+	        if(content.getTimedOutPages().size()>0)
+	        	sbLog.append("    - Timed out (partial) pages : "+content.getTimedOutPages()).append("\n");
+	        for(String sTypeExt : aOutputTypes)
+	        {
+	        	sbLog.append("    - Export to "+sTypeExt+" ...").append("\n");
+	        	
+		        File fileOutput = new File(
+		        		aFolderSaveOutput.getAbsolutePath()
+		        		+"/extracted_"+metaData.getSourceFileName()+"."+sTypeExt);
+		        
+		        exportAsFile(content, fileOutput, sbLog);
+		        
+		        long lElapsedMs = System.currentTimeMillis() - lStartTimeMs;
+		        sbLog.append("    - Extracted "+metaData.getTotalPages()
+		        					+" pages ("+sTypeExt+" "+lElapsedMs+" ms)").append("\n");
+		        sbLog.append("\n");
+	        }
+	        
+	        for(int iPageNo=1; iPageNo <= metaData.getTotalPages(); iPageNo++)
+	        {
+		        BufferedImage img = pdfExtract.renderPagePreview(iPageNo, 1.0f);
+		        if(img!=null)
+		        {
+		        	File fileImg = new File(
+		        			aFolderSaveOutput.getAbsolutePath()
+		        			+ String.format("/preview_p%02d.jpg",iPageNo));
+			        if(ImageIO.write(img, "jpg", fileImg))
+					{
+						sbLog.append("    - [saved] "+fileImg.getName()).append("\n");
+					}
+		        }
+	        }
+	        return metaData.getTotalPages();
+        }
+        finally
+        {
+        	if(pdfExtract!=null)
+        		pdfExtract.release();
+        	System.out.print(sbLog);
+        }
+    }
+    
+    /**
+     * Extract files concurrently on virtual threads.
+     * <br>
+     * aMaxConcurrency limits the number of files in progress, aMaxMemoryMB limits the 
+     * estimated heap of the files in progress (~ MEM_FACTOR x pdf file size each).
+     */
+    protected static long extractFilesConcurrently(List<File> aPDFFiles, File aFolderOutput, String aExecID, 
+    		String[] aOutputTypes, int aMaxConcurrency, int aMaxMemoryMB)
+    {
+    	final Semaphore semConcurrency 	= new Semaphore(Math.max(1, aMaxConcurrency));
+    	final Semaphore semMemoryMB 	= aMaxMemoryMB>0 ? new Semaphore(aMaxMemoryMB) : null;
+    	final AtomicLong lTotalPages 	= new AtomicLong(0);
+    	
+    	try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+    	{
+	        int iFileSeq = 1;
+	        for(File f : aPDFFiles)
+	        {
+	        	final int iSeq = iFileSeq++;
+	        	final File folderSaveOutput = new File(aFolderOutput.getAbsolutePath()+"/"+aExecID+"/"+f.getName());
+	        	// a single file larger than the limit still runs, but alone
+	        	final int iMemoryMB = semMemoryMB==null ? 0 :
+	        		(int) Math.min(aMaxMemoryMB, Math.max(1, (f.length() * MEM_FACTOR) / (1024*1024)));
+	        	
+	        	executor.submit(() -> {
+	        		boolean isMemAcquired = false;
+	        		try {
+	        			semConcurrency.acquire();
+	        			try {
+	        				if(semMemoryMB!=null)
+	        				{
+	        					semMemoryMB.acquire(iMemoryMB);
+	        					isMemAcquired = true;
+	        				}
+	        				lTotalPages.addAndGet(extractFile(f, folderSaveOutput, aOutputTypes, iSeq));
+	        			}
+	        			finally {
+	        				if(isMemAcquired)
+	        					semMemoryMB.release(iMemoryMB);
+	        				semConcurrency.release();
+	        			}
+	        		}
+	        		catch(InterruptedException e) {
+	        			Thread.currentThread().interrupt();
+	        		}
+	        		catch(Exception e) {
+	        			System.err.println(" Failed to extract "+f.getName());
+	        			e.printStackTrace();
+	        		}
+	        	});
+	        }
+    	}
+    	return lTotalPages.get();
+    }
+    
     //=========================================================== 
     public static void main(String[] args) throws IOException{
         File folderInput 		= null;
         File folderOutput 		= null;
         String[] sOutputTypes  	= new String[]{"txt"};
         
+        // batch mode : -Dbatch.concurrency=<files> -Dbatch.maxmemory.mb=<MB>
+        int iConcurrency 	= Integer.getInteger(PROP_BATCH_CONCURRENCY, 1);
+        int iMaxMemoryMB 	= Integer.getInteger(PROP_BATCH_MAXMEM_MB, 0);
+        
         if(isConsoleSyntaxOK(args))
         {
         	folderInput 	= new File(args[0]);
@@ -202,73 +354,37 @@ public class ConsoleApp {
 
         SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd_HHmm-ss.SSS");
         String sExecID = df.format(System.currentTimeMillis()); 
-        int iFileSeq = 1;
+        
+        List<File> listPDFFiles = new ArrayList<>();
         for(File f : files)
         {
-        	if(f.isFile())
+        	if(f.isFile() && f.getName().toLowerCase().endsWith(".pdf"))
         	{
-        		if(f.getName().toLowerCase().endsWith(".pdf"))
-        		{
-        			File folderSaveOutput = new File(folderOutput.getAbsolutePath()+"/"+sExecID+"/"+f.getName());
-        			
-        			
-        			long lStartTimeMs = System.currentTimeMillis(); 
-        			System.out.println("\n "+(iFileSeq++)+". Extracting "+f.getName()+" ...");
-        			
-			        PDFExtractor pdfExtract = null;
-			        
-			        try {
-				        pdfExtract = new PDFExtractor(f);
-				        pdfExtract.setExtractText(true);
-				        pdfExtract.setExtractImage(true);
-				        
-				        pdfExtract.setDetectDocLayout(false);
-				        pdfExtract.setExtractVector(false);
-				        
-				        //Group text by paragraph
-				        pdfExtract.setIsGroupTextVertically(false);
-				        
-				        ExtractedData content = pdfExtract.extractAll();
-				        
-				        MetaData metaData = content.getMetaData();
-				        for(String sTypeExt : sOutputTypes)
-				        {
-				        	System.out.println("    - Export to "+sTypeExt+" ...");
-				        	
-					        File fileOutput = new File(
-					        		folderSaveOutput.getAbsolutePath()
-					        		+"/extracted_"+metaData.getSourceFileName()+"."+sTypeExt);
-					        
-					        exportAsFile(content, fileOutput);
-					        
-					        long lElapsedMs = System.currentTimeMillis() - lStartTimeMs;
-					        System.out.println("    - Extracted "+metaData.getTotalPages()
-					        					+" pages ("+sTypeExt+" "+lElapsedMs+" ms)");
-					        System.out.println();
-				        }
-				        
-				        for(int iPageNo=1; iPageNo <= metaData.getTotalPages(); iPageNo++)
-				        {
-					        BufferedImage img = pdfExtract.renderPagePreview(iPageNo, 1.0f);
-					        if(img!=null)
-					        {
-					        	File fileImg = new File(
-					        			folderSaveOutput.getAbsolutePath()
-					        			+ String.format("/preview_p%02d.jpg",iPageNo));
-						        if(ImageIO.write(img, "jpg", fileImg))
-								{
-									System.out.println("    - [saved] "+fileImg.getName());
-								}
-					        }
-				        }
-			        }
-			        finally
-			        {
-			        	if(pdfExtract!=null)
-			        		pdfExtract.release();
-			        }
-	        	}
+        		listPDFFiles.add(f);
         	}
         }
+        
+        long lBatchStartMs 	= System.currentTimeMillis();
+        long lTotalPages 	= 0;
+        if(iConcurrency>1)
+        {
+        	System.out.println("Batch mode : "+iConcurrency+" files concurrently"
+        			+(iMaxMemoryMB>0?", max "+iMaxMemoryMB+" MB":""));
+        	lTotalPages = extractFilesConcurrently(listPDFFiles, folderOutput, sExecID, 
+        			sOutputTypes, iConcurrency, iMaxMemoryMB);
+        }
+        else
+        {
+	        int iFileSeq = 1;
+	        for(File f : listPDFFiles)
+	        {
+	        	File folderSaveOutput = new File(folderOutput.getAbsolutePath()+"/"+sExecID+"/"+f.getName());
+	        	lTotalPages += extractFile(f, folderSaveOutput, sOutputTypes, iFileSeq++);
+	        }
+        }
+        
+        long lBatchElapsedMs = Math.max(1, System.currentTimeMillis() - lBatchStartMs);
+        System.out.println(String.format("\n Total %d files, %d pages in %d ms (%.2f pages/sec)", 
+        		listPDFFiles.size(), lTotalPages, lBatchElapsedMs, (lTotalPages * 1000.0) / lBatchElapsedMs));
     }
 }
\ No newline at end of file
@@ -2,18 +2,46 @@ package hl.doc.extractor.pdf.extraction;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import hl.doc.extractor.pdf.extraction.base.AbstractExtractor;
+import hl.doc.extractor.pdf.extraction.base.PDFLoadOptions;
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
 import hl.doc.extractor.pdf.extraction.util.ContentUtil.SORT;
 
 public class PDFExtractor extends AbstractExtractor
 {
 
+	/**
+	 * Reusable extractor, bind each document with reset()
+	 */
+	public PDFExtractor(PDFLoadOptions aLoadOptions) {
+		super(aLoadOptions);
+		initDefaultConfig();
+	}
+	
 	public PDFExtractor(File aPDFFile) throws IOException {
-		super(aPDFFile);
-		
+		this(aPDFFile, null);
+	}
+	
+	public PDFExtractor(File aPDFFile, PDFLoadOptions aLoadOptions) throws IOException {
+		super(aPDFFile, aLoadOptions);
+		initDefaultConfig();
+	}
+	
+	public PDFExtractor(byte[] aPDFBytes, String aSourceFileName, PDFLoadOptions aLoadOptions) throws IOException {
+		super(aPDFBytes, aSourceFileName, aLoadOptions);
+		initDefaultConfig();
+	}
+	
+	public PDFExtractor(ByteBuffer aPDFBuffer, String aSourceFileName, PDFLoadOptions aLoadOptions) throws IOException {
+		super(aPDFBuffer, aSourceFileName, aLoadOptions);
+		initDefaultConfig();
+	}
+	
+	private void initDefaultConfig()
+	{
 		//default config
 		setSortingOrder(new SORT[] {
 				SORT.BY_PAGE, 
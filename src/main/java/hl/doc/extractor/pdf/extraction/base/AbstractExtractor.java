@@ -1,6 +1,7 @@
 package hl.doc.extractor.pdf.extraction.base;
 
-import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObjectKey;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
@@ -10,12 +11,23 @@ import org.json.JSONObject;
 import hl.common.ImgUtil;
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
 import hl.doc.extractor.pdf.extraction.pojo.ExtractedData;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.Counter;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.PageMetrics;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.Stage;
+import hl.doc.extractor.pdf.extraction.pojo.LazyExtractedData;
 import hl.doc.extractor.pdf.extraction.pojo.MetaData;
 import hl.doc.extractor.pdf.extraction.pojo.VectorData;
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
 import hl.doc.extractor.pdf.extraction.util.ContentUtil;
 import hl.doc.extractor.pdf.extraction.util.ContentUtil.SORT;
+import hl.doc.extractor.pdf.extraction.util.DataUtil;
 import hl.doc.extractor.pdf.extraction.util.ExtractionUtil;
+import hl.doc.extractor.pdf.extraction.util.base.ExtractionDeadline;
+import hl.doc.extractor.pdf.extraction.util.base.MultiTermMatcher;
+import hl.doc.extractor.pdf.extraction.util.base.DocumentImageCache;
+import hl.doc.extractor.pdf.extraction.util.base.PageExtractOptions;
+import hl.doc.extractor.pdf.extraction.util.base.PageRenderCache;
 import hl.doc.extractor.pdf.extraction.util.base.TextExtractUtil;
 
 import java.awt.Color;
@@ -24,25 +36,46 @@ import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.imageio.ImageIO;
 
 @SuppressWarnings("unused")
 abstract public class AbstractExtractor 
 {
+	private static Logger logger = Logger.getLogger(AbstractExtractor.class.getName());
+	//
 	public static String _version = "0.9.0";
 	//
 	private File file_orig_pdf 	= null;
+	private byte[] bytes_orig_pdf 		= null;
+	private ByteBuffer buffer_orig_pdf 	= null;
+	private PDFLoadOptions load_options = null;
 	private MetaData pdf_meta   = null;
+	private String content_hash = null;
 	//
 	private PDDocument pdf_doc 	= null;
+	private long doc_generation = 0; // incremented on each reset, see extractPagesLazy()
 	private SORT[] sortings 	= null; 
 	//
 	private boolean is_extract_text 	= true;
@@ -51,55 +84,312 @@ abstract public class AbstractExtractor
 	//
 	private boolean is_resize_image = false;
 	private float force_pdf_version = -1f;
+	private double force_pdf_version_ms = -1;
 	private boolean is_group_text_vertically = false;
+	private int parallelism = 1;
+	private boolean is_collect_metrics = false;
+	private long page_timeout_ms 	= 0;
+	private long doc_timeout_ms 	= 0;
+	private ExtractionRun last_run 	= null;
 	//
 	private boolean is_detect_layout 	= false; //docLayout
 	private DocLayoutDetector docLayoutDetector = null;
 	
+	// rendered pages of each open document, shared by layout detection, vector fallback & preview
+	private long render_cache_bytes = PageRenderCache.DEFAULT_MAX_CACHE_BYTES;
+	private final Map<PDDocument, PageRenderCache> mapRenderCaches = new IdentityHashMap<>();
+	// extracted images of each open document, for images placed on many pages
+	private final Map<PDDocument, DocumentImageCache> mapImageCaches = new IdentityHashMap<>();
+	// digest of the streams of each open document, shared by its page fingerprints
+	private final Map<PDDocument, Map<COSObjectKey, String>> mapStreamDigests = new IdentityHashMap<>();
+	
 	public String getVersion()
 	{
 		return _version;
 	}
 	
+    /**
+     * Extractor without a document, bind one with reset() before extracting.
+     * <br>
+     * For long running services, the same instance (with its config and layout model) 
+     * can be reset() to each new document.
+     */
+    public AbstractExtractor(PDFLoadOptions aLoadOptions) {
+    	this.load_options = aLoadOptions!=null ? aLoadOptions : new PDFLoadOptions();
+    }
+    
     public AbstractExtractor(File aPDFFile) throws IOException {
+    	this(aPDFFile, null);
+    }
+    
+    public AbstractExtractor(File aPDFFile, PDFLoadOptions aLoadOptions) throws IOException {
+    	
+    	this.load_options = aLoadOptions!=null ? aLoadOptions : new PDFLoadOptions();
+    	this.file_orig_pdf = aPDFFile;
+    	
+    	initDocument(aPDFFile.getName());
+    }
+    
+    public AbstractExtractor(byte[] aPDFBytes, String aSourceFileName, PDFLoadOptions aLoadOptions) throws IOException {
+    	
+    	this.load_options = aLoadOptions!=null ? aLoadOptions : new PDFLoadOptions();
+    	this.bytes_orig_pdf = aPDFBytes;
     	
-    	this.pdf_doc = Loader.loadPDF(aPDFFile);
+    	initDocument(aSourceFileName);
+    }
+    
+    public AbstractExtractor(ByteBuffer aPDFBuffer, String aSourceFileName, PDFLoadOptions aLoadOptions) throws IOException {
+    	
+    	this.load_options = aLoadOptions!=null ? aLoadOptions : new PDFLoadOptions();
+    	this.buffer_orig_pdf = aPDFBuffer;
+    	
+    	initDocument(aSourceFileName);
+    }
+    
+    private void initDocument(String aSourceFileName) throws IOException {
     	
-    	if(this.force_pdf_version>0 && this.force_pdf_version!=this.pdf_doc.getVersion())
+    	ExtractionCache cache = this.load_options.getExtractionCache();
+    	if(cache!=null)
     	{
-    		/////
-    		//System.out.println("Convert from "+this.pdf_doc+" to "+this.force_pdf_version+" in-memory.");
-    		this.pdf_doc.setVersion(this.force_pdf_version);
-    		//
-    		ByteArrayOutputStream bytesPdf = new ByteArrayOutputStream();
-    		this.pdf_doc.save(bytesPdf);
-    		this.pdf_doc.close();
-    		//////
-    		//System.out.println("Reload converted "+this.force_pdf_version+" from memory");
-    		this.pdf_doc = Loader.loadPDF(bytesPdf.toByteArray());
+    		if(this.file_orig_pdf!=null)
+    			this.content_hash = ExtractionCache.hash(this.file_orig_pdf);
+    		else if(this.bytes_orig_pdf!=null)
+    			this.content_hash = ExtractionCache.hash(this.bytes_orig_pdf);
+    		else if(this.buffer_orig_pdf!=null)
+    			this.content_hash = ExtractionCache.hash(this.buffer_orig_pdf);
+    		
+    		// cache hit, no need to parse the pdf
+    		String sCachedMeta = cache.get(this.content_hash+"_meta");
+    		if(sCachedMeta!=null)
+    		{
+    			this.pdf_meta = new MetaData(new JSONObject(sCachedMeta));
+    			this.pdf_meta.setSourceFileName(aSourceFileName);
+    			return;
+    		}
     	}
     	
+    	this.pdf_doc = loadOrigPdf();
+    	
     	if(this.pdf_doc!=null)
     	{
-	   		this.file_orig_pdf = aPDFFile;
-	   		
 	   		this.pdf_meta = new MetaData(this.pdf_doc);
-	   		this.pdf_meta.setSourceFileName(aPDFFile.getName());
+	   		this.pdf_meta.setSourceFileName(aSourceFileName);
+	   		
+	   		if(cache!=null)
+	   			cache.put(this.content_hash+"_meta", this.pdf_meta.toJson().toString());
     	}
     }
     
-    public void release()
+    /**
+     * Rebind this extractor to another pdf, the current document is closed.
+     * <br>
+     * Extraction config, load options and the loaded layout model are kept.
+     * <br>
+     * Pages of a LazyExtractedData of the previous document that are not loaded yet
+     * are no longer available, see extractPagesLazy().
+     */
+    public void reset(File aPDFFile) throws IOException {
+    	clearDocument();
+    	this.file_orig_pdf = aPDFFile;
+    	initDocument(aPDFFile.getName());
+    }
+    
+    public void reset(byte[] aPDFBytes, String aSourceFileName) throws IOException {
+    	clearDocument();
+    	this.bytes_orig_pdf = aPDFBytes;
+    	initDocument(aSourceFileName);
+    }
+    
+    public void reset(ByteBuffer aPDFBuffer, String aSourceFileName) throws IOException {
+    	clearDocument();
+    	this.buffer_orig_pdf = aPDFBuffer;
+    	initDocument(aSourceFileName);
+    }
+    
+    /**
+     * Close the current document and clear all its per-document state
+     */
+    private synchronized void clearDocument()
+    {
+    	closeDocument();
+    	this.doc_generation++;
+    	this.file_orig_pdf 		= null;
+    	this.bytes_orig_pdf 	= null;
+    	this.buffer_orig_pdf 	= null;
+    	this.pdf_meta 			= null;
+    	this.content_hash 		= null;
+    	this.force_pdf_version_ms = -1;
+    	this.last_run 			= null;
+    }
+    
+    private void closeDocument()
     {
+    	synchronized(mapRenderCaches)
+    	{
+    		mapRenderCaches.clear();
+    	}
+    	synchronized(mapImageCaches)
+    	{
+    		mapImageCaches.clear();
+    	}
+    	synchronized(mapStreamDigests)
+    	{
+    		mapStreamDigests.clear();
+    	}
+    	
     	if(pdf_doc!=null)
+    	{
 			try {
 				pdf_doc.close();
 			} catch (IOException e) {
-				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
+			pdf_doc = null;
+    	}
+    }
+    
+    private int getTotalPages() throws IOException
+    {
+    	if(this.pdf_meta==null)
+    		throw new IOException("No pdf document to extract, see reset()");
+    	return this.pdf_meta.getTotalPages();
+    }
+    
+    /**
+     * The pdf is only loaded when needed, when extraction results are served from cache
+     */
+    private synchronized PDDocument getPDDocument() throws IOException
+    {
+    	if(this.pdf_doc==null)
+    		this.pdf_doc = loadOrigPdf();
+    	return this.pdf_doc;
+    }
+    
+    /**
+     * Same as above, only if the document was not reset since aDocGeneration
+     */
+    private synchronized PDDocument getPDDocument(long aDocGeneration) throws IOException
+    {
+    	checkDocGeneration(aDocGeneration);
+    	return getPDDocument();
+    }
+    
+    private synchronized void checkDocGeneration(long aDocGeneration) throws IOException
+    {
+    	if(this.doc_generation!=aDocGeneration)
+    		throw new IOException("Extractor was reset to another document");
+    }
+    
+    /**
+     * Render cache of the document, each open document has its own PDFRenderer
+     */
+    private PageRenderCache getRenderCache(PDDocument aDoc)
+    {
+    	synchronized(mapRenderCaches)
+    	{
+    		return mapRenderCaches.computeIfAbsent(aDoc, k -> new PageRenderCache(aDoc, this.render_cache_bytes));
+    	}
+    }
+    
+    private void releaseRenderCache(PDDocument aDoc)
+    {
+    	synchronized(mapRenderCaches)
+    	{
+    		mapRenderCaches.remove(aDoc);
+    	}
+    }
+    
+    private DocumentImageCache getImageCache(PDDocument aDoc)
+    {
+    	synchronized(mapImageCaches)
+    	{
+    		return mapImageCaches.computeIfAbsent(aDoc, k -> new DocumentImageCache());
+    	}
+    }
+    
+    private void releaseImageCache(PDDocument aDoc)
+    {
+    	synchronized(mapImageCaches)
+    	{
+    		mapImageCaches.remove(aDoc);
+    	}
+    }
+    
+    private Map<COSObjectKey, String> getStreamDigests(PDDocument aDoc)
+    {
+    	synchronized(mapStreamDigests)
+    	{
+    		return mapStreamDigests.computeIfAbsent(aDoc, k -> new ConcurrentHashMap<>());
+    	}
+    }
+    
+    private void releaseStreamDigests(PDDocument aDoc)
+    {
+    	synchronized(mapStreamDigests)
+    	{
+    		mapStreamDigests.remove(aDoc);
+    	}
+    }
+    
+    /**
+     * Open a new PDDocument from the original source, using the same load options
+     */
+    private PDDocument loadOrigPdf() throws IOException
+    {
+    	PDDocument doc = null;
+    	if(this.file_orig_pdf!=null)
+    		doc = this.load_options.loadPDF(this.file_orig_pdf);
+    	else if(this.bytes_orig_pdf!=null)
+    		doc = this.load_options.loadPDF(this.bytes_orig_pdf);
+    	else if(this.buffer_orig_pdf!=null)
+    		doc = this.load_options.loadPDF(this.buffer_orig_pdf);
     	
-    	if(docLayoutDetector!=null)
-    		docLayoutDetector.release();
+    	coercePDFVersion(doc);
+    	return doc;
+    }
+    
+    /**
+     * Force the pdf version on the loaded document, header and catalog /Version are 
+     * updated in-place instead of saving and reloading the whole document.
+     */
+    private boolean coercePDFVersion(PDDocument aDoc)
+    {
+    	if(aDoc==null || this.force_pdf_version<=0 || this.force_pdf_version==aDoc.getVersion())
+    		return false;
+    	
+    	long lStartNs = System.nanoTime();
+    	float fOrigVersion = aDoc.getVersion();
+    	
+    	// PDDocument.setVersion() does not allow downgrade
+    	aDoc.getDocument().setVersion(this.force_pdf_version);
+    	if(this.force_pdf_version>=1.4f)
+    		aDoc.getDocumentCatalog().setVersion(String.valueOf(this.force_pdf_version));
+    	else
+    		aDoc.getDocumentCatalog().getCOSObject().removeItem(COSName.VERSION);
+    	
+    	this.force_pdf_version_ms = (System.nanoTime() - lStartNs) / 1000000.0;
+    	logger.log(Level.INFO, String.format("Converted pdf version from %s to %s in %.3f ms",
+    			fOrigVersion, this.force_pdf_version, this.force_pdf_version_ms));
+    	return true;
+    }
+    
+    /**
+     * Close the document and release the layout model.
+     * <br>
+     * To keep the layout model loaded for the next document, use reset() instead.
+     */
+    public void release()
+    {
+    	synchronized(this)
+    	{
+    		closeDocument();
+    		
+	    	if(docLayoutDetector!=null)
+	    	{
+	    		docLayoutDetector.release();
+	    		docLayoutDetector = null;
+	    	}
+    	}
     }
 
     public File getOrigPdfFile()
@@ -107,9 +397,35 @@ abstract public class AbstractExtractor
     	return file_orig_pdf;
     }
     
+    public PDFLoadOptions getLoadOptions()
+    {
+    	return load_options;
+    }
+    
     public void setForcePDFVersion(float aPDFVer)
     {
     	this.force_pdf_version = aPDFVer;
+    	
+    	if(this.pdf_doc!=null)
+    	{
+	    	if(coercePDFVersion(this.pdf_doc) && this.pdf_meta!=null)
+	    	{
+	    		this.pdf_meta.setDocVersion(this.pdf_doc.getVersion());
+	    	}
+    	}
+    	else if(aPDFVer>0 && this.pdf_meta!=null)
+    	{
+    		// not loaded yet (cached), version will be forced when loaded
+    		this.pdf_meta.setDocVersion(aPDFVer);
+    	}
+    }
+    
+    /**
+     * Time taken by the last forced pdf version conversion, -1 if none
+     */
+    public double getForcePDFVersionElapsedMs()
+    {
+    	return this.force_pdf_version_ms;
     }
     
     public void setSortingOrder(SORT ... aSorts )
@@ -146,11 +462,115 @@ abstract public class AbstractExtractor
     	return this.is_group_text_vertically;
     }
     
+    /**
+     * Number of pages to be extracted concurrently, default 1 (sequential).
+     * Each worker opens its own PDDocument from the original pdf source.
+     */
+    public void setParallelism(int aParallelism)
+    {
+    	this.parallelism = Math.max(1, aParallelism);
+    }
+    
+    public int getParallelism()
+    {
+    	return this.parallelism;
+    }
+    
+    /**
+     * Collect per-page stage timings & content counts, see {@link ExtractedData#getExtractionMetrics()}
+     */
+    public void setCollectMetrics(boolean isCollectMetrics)
+    {
+    	this.is_collect_metrics = isCollectMetrics;
+    }
+    
+    public boolean isCollectMetrics()
+    {
+    	return this.is_collect_metrics;
+    }
+    
+    /**
+     * Metrics of the last extraction started, e.g. for extractStream(), null if not collected
+     */
+    public ExtractionMetrics getLastExtractionMetrics()
+    {
+    	return this.last_run!=null ? this.last_run.metrics : null;
+    }
+    
+    /**
+     * Time budget of a page in ms, 0 for no limit (default).
+     * <br>
+     * Once it runs out, the page processing stops and the page only holds the content 
+     * extracted so far, see {@link ExtractedData#getTimedOutPages()}.
+     */
+    public void setPageTimeoutMs(long aTimeoutMs)
+    {
+    	this.page_timeout_ms = Math.max(0, aTimeoutMs);
+    }
+    
+    public long getPageTimeoutMs()
+    {
+    	return this.page_timeout_ms;
+    }
+    
+    /**
+     * Time budget of extractPages() / extractStream() in ms, 0 for no limit (default).
+     * <br>
+     * Once it runs out, the page in progress is cut short and the remaining pages
+     * are returned empty, all flagged as timed out. Not applicable to lazy extraction.
+     */
+    public void setDocumentTimeoutMs(long aTimeoutMs)
+    {
+    	this.doc_timeout_ms = Math.max(0, aTimeoutMs);
+    }
+    
+    public long getDocumentTimeoutMs()
+    {
+    	return this.doc_timeout_ms;
+    }
+    
+    /**
+     * Pages cut short by the time budget during the last extraction started, e.g. for extractStream()
+     */
+    public Set<Integer> getLastTimedOutPages()
+    {
+    	return this.last_run!=null ? this.last_run.timed_out_pages : new ConcurrentSkipListSet<>();
+    }
+    
+    /**
+     * States shared by the pages of an extraction
+     */
+    private static class ExtractionRun {
+    	final ExtractionMetrics metrics;
+    	final ExtractionDeadline doc_deadline;
+    	final Set<Integer> timed_out_pages = new ConcurrentSkipListSet<>();
+    	
+    	ExtractionRun(ExtractionMetrics aMetrics, ExtractionDeadline aDocDeadline)
+    	{
+    		this.metrics = aMetrics;
+    		this.doc_deadline = aDocDeadline;
+    	}
+    	
+    	PageMetrics getPageMetrics(int iPageNo)
+    	{
+    		return this.metrics!=null ? this.metrics.getPageMetrics(iPageNo) : null;
+    	}
+    }
+    
+    private ExtractionRun newExtractionRun(boolean isApplyDocTimeout)
+    {
+    	ExtractionRun run = new ExtractionRun(
+    			this.is_collect_metrics ? new ExtractionMetrics() : null,
+    			isApplyDocTimeout && this.doc_timeout_ms>0 ? new ExtractionDeadline(this.doc_timeout_ms, null) : null);
+    	this.last_run = run;
+    	return run;
+    }
+    
     //////////////////
 
     public ExtractedData extractAll() throws IOException
     {
-    	return extractPages(1, pdf_doc.getNumberOfPages());
+    	return extractPages(1, getTotalPages());
     }
     
     public ExtractedData extractPage(int aPageNo) throws IOException
@@ -165,77 +585,112 @@ abstract public class AbstractExtractor
     	if(aStartPageNo<=0)
     		aStartPageNo = 1;
     	
-    	if(aEndPageNo<=0 || aEndPageNo>pdf_doc.getNumberOfPages())
-    		aEndPageNo = pdf_doc.getNumberOfPages();
+    	if(aEndPageNo<=0 || aEndPageNo>getTotalPages())
+    		aEndPageNo = getTotalPages();
     	
-    	for(int iPageNo=aStartPageNo; iPageNo<=aEndPageNo; iPageNo++)
+    	ExtractionRun run = newExtractionRun(true);
+    	
+    	if(this.parallelism>1 && aEndPageNo>aStartPageNo)
     	{
-    		List<ContentItem> listText 		= new ArrayList<>();
-    		List<ContentItem> listImage 	= new ArrayList<>();
-    		List<ContentItem> listVector 	= new ArrayList<>();
-    		
-    		Map<String, Rectangle> mapInterestAreas = null;
-    		
-    		if(this.is_detect_layout)
-    		{
-    			if(docLayoutDetector==null)
-					docLayoutDetector = new DocLayoutDetector();
-    			
-    			mapInterestAreas = docLayoutDetector.detectLayoutROI(pdf_doc, iPageNo);
-    		}
-    		////
-    		if(this.is_extract_text)
-    		{
-		    	listText = ExtractionUtil.extractTextContentByAreas(pdf_doc, iPageNo-1, mapInterestAreas);
-		    	
-		    	if(this.is_group_text_vertically)
-		    	{
-		    		listText = TextExtractUtil.groupTextByParagraph(listText);
-		    	}
-    		}
-	    	////
-    		if(this.is_extract_image)
-    		{
-		    	listImage = ExtractionUtil.extractImageContent(pdf_doc, iPageNo-1, this.is_resize_image);
-    		}
-	    	////
-    		if(this.is_extract_vector)
-    		{
-    			List<ContentItem> listVectorTemp = ExtractionUtil.extractVectorContent(pdf_doc, iPageNo-1, true);
-	    		
-	    		for(ContentItem it : listVectorTemp)
-	    		{
-	    			VectorData vData = new VectorData(new JSONObject(it.getData()));
-	    			if(vData.getPathSegmentCount()>20000)
-	    			{
-	    				//image
-	    				Rectangle2D rect = vData.getVector().getBounds();
-	    				BufferedImage imgPage = ContentUtil.renderPagePreview(pdf_doc, iPageNo, 1.0f);	    				
-	    				BufferedImage imgVector = imgPage.getSubimage((int)rect.getX(), (int)rect.getY(), (int)rect.getWidth(), (int)rect.getHeight());
-	    				
-	    				if(imgVector!=null)
-	    				{
-	    					ContentItem item = ContentUtil.imageToContentItem(imgVector, "jpg", iPageNo, rect);
-		    				item.setExtract_seq(-1);
-		    				listImage.add(item);
-	    				}
-	    			}
-	    			else
-	    			{
-	    				listVector.add(it);
-	    			}
-	    		}
-    		}
-    		
-    		
-    		if(listText.size()>0)
-    			listItems.addAll(listText);
-    		if(listImage.size()>0)
-    			listItems.addAll(listImage);
-    		if(listVector.size()>0)
-    			listItems.addAll(listVector);
+    		listItems = extractPageItemsParallel(aStartPageNo, aEndPageNo, run);
+    	}
+    	else
+    	{
+	    	for(int iPageNo=aStartPageNo; iPageNo<=aEndPageNo; iPageNo++)
+	    	{
+	    		listItems.addAll(extractPageItemsCached(this::getPDDocument, iPageNo, run));
+	    	}
+    	}
+    	
+    	return toExtractedData(listItems, run);
+    }
+    
+    /**
+     * Only the pages with text containing any of aSearchTerms are extracted, see findMatchingPages()
+     */
+    public ExtractedData extractMatchingPages(List<String> aSearchTerms, int aMaxHits) throws IOException
+    {
+    	return extractMatchingPages(1, getTotalPages(), aSearchTerms, aMaxHits);
+    }
+    
+    public ExtractedData extractMatchingPages(int aStartPageNo, int aEndPageNo, 
+    		List<String> aSearchTerms, int aMaxHits) throws IOException
+    {
+    	List<Integer> listPageNos = findMatchingPages(aStartPageNo, aEndPageNo, aSearchTerms, aMaxHits);
+    	
+    	ExtractionRun run = newExtractionRun(true);
+    	List<ContentItem> listItems = new ArrayList<>();
+    	if(this.parallelism>1 && listPageNos.size()>1)
+    	{
+    		listItems = extractPageItemsParallel(listPageNos, run);
+    	}
+    	else
+    	{
+	    	for(int iPageNo : listPageNos)
+	    	{
+	    		listItems.addAll(extractPageItemsCached(this::getPDDocument, iPageNo, run));
+	    	}
+    	}
+    	return toExtractedData(listItems, run);
+    }
+    
+    /**
+     * Pages with text items containing any of aSearchTerms (case-insensitive, same as 
+     * ContentUtil.searchItems()), found with a single text-only pass over the pages 
+     * without any image, vector or layout extraction.
+     * <br>
+     * The pass stops at the page of the aMaxHits-th matching text item, 0 for no limit.
+     */
+    public List<Integer> findMatchingPages(int aStartPageNo, int aEndPageNo, 
+    		List<String> aSearchTerms, int aMaxHits) throws IOException
+    {
+    	if(aStartPageNo<=0)
+    		aStartPageNo = 1;
+    	
+    	if(aEndPageNo<=0 || aEndPageNo>getTotalPages())
+    		aEndPageNo = getTotalPages();
+    	
+    	List<String> listLowerCase = new ArrayList<>();
+    	for(String sSearch : aSearchTerms)
+    	{
+    		listLowerCase.add(sSearch.toLowerCase());
     	}
+    	MultiTermMatcher matcher = new MultiTermMatcher(listLowerCase);
     	
+    	List<Integer> listPageNos = new ArrayList<>();
+    	int[] iHits = new int[] {0};
+    	TextExtractUtil.extractTextContentByPages(getPDDocument(), aStartPageNo-1, aEndPageNo-1, null, 
+    			(iPageNo, listPageText) -> {
+    				
+    				// lines spanning a term are only matched once grouped, same as the full extraction
+    				if(this.is_group_text_vertically)
+    					listPageText = TextExtractUtil.groupTextByParagraph(listPageText);
+    				
+    				boolean isPageMatched = false;
+    				for(ContentItem it : listPageText)
+    				{
+    					String sData = it.getData()!=null ? it.getData().toLowerCase() : "";
+    					if(matcher.isMatch(sData))
+    					{
+    						isPageMatched = true;
+    						if(aMaxHits>0 && ++iHits[0]>=aMaxHits)
+    							break;
+    					}
+    				}
+    				
+    				if(isPageMatched)
+    					listPageNos.add(iPageNo);
+    				return aMaxHits<=0 || iHits[0]<aMaxHits;
+    			});
+    	return listPageNos;
+    }
+    
+    /**
+     * Sorts and sequence-numbers the extracted items of the pages
+     */
+    private ExtractedData toExtractedData(List<ContentItem> listItems, ExtractionRun run)
+    {
+    	long lSortStartNanos = System.nanoTime();
     	listItems = preSortProcess(listItems);
 		///
 		///
@@ -243,6 +698,8 @@ abstract public class AbstractExtractor
         ///
         ///
     	listItems = postSortProcess(listItems);
+    	if(run.metrics!=null)
+    		run.metrics.getDocumentMetrics().addElapsedNanos(Stage.SORTING, System.nanoTime()-lSortStartNanos);
 
     	int iDocSeq 	= 1;
     	int iPgLineSeq 	= 1;
@@ -260,9 +717,509 @@ abstract public class AbstractExtractor
         
         ExtractedData extracted = new ExtractedData(this.pdf_meta);
         extracted.setContentItemList(listItems);
+        extracted.setExtractionMetrics(run.metrics);
+        extracted.setTimedOutPages(run.timed_out_pages);
         return extracted;
     }
     
+    public void extractStream(PageConsumer aPageConsumer) throws IOException
+    {
+    	extractStream(1, getTotalPages(), aPageConsumer);
+    }
+    
+    /**
+     * Streaming version of {@link #extractPages(int, int)}, each page is sorted and 
+     * sequence-numbered on its own and handed to aPageConsumer once it is done, 
+     * so only a few pages are held in memory at any time.
+     * <br>
+     * doc_seq continues across pages, output is the same as extractPages() 
+     * when the sorting order starts with SORT.BY_PAGE.
+     */
+    public void extractStream(int aStartPageNo, int aEndPageNo, PageConsumer aPageConsumer) throws IOException
+    {
+    	if(aStartPageNo<=0)
+    		aStartPageNo = 1;
+    	
+    	if(aEndPageNo<=0 || aEndPageNo>getTotalPages())
+    		aEndPageNo = getTotalPages();
+    	
+    	ExtractionRun run = newExtractionRun(true);
+    	
+    	int[] iDocSeq 	= new int[] {1};
+    	int[] iImgCount = new int[] {0};
+    	PageConsumer sortedConsumer = (iPageNo, listPageItems) -> {
+    		
+    		listPageItems = sortPageItems(listPageItems, run.getPageMetrics(iPageNo));
+    		for(ContentItem it : listPageItems)
+    		{
+            	it.setDoc_seq(iDocSeq[0]++);
+            	
+            	if(it.getType()==Type.IMAGE)
+            	{
+            		// same image naming as ExtractedData.setContentItemList()
+            		ExtractedData.setImageItemFileName(it, ++iImgCount[0]);
+            	}
+    		}
+    		return aPageConsumer.consumePage(iPageNo, listPageItems);
+    	};
+    	
+    	if(this.parallelism>1 && aEndPageNo>aStartPageNo)
+    	{
+    		// backpressure : workers stay at most 2 pages each ahead of the consumer
+    		extractPageItemsParallel(toPageNoList(aStartPageNo, aEndPageNo), this.parallelism*2, run, sortedConsumer);
+    	}
+    	else
+    	{
+	    	for(int iPageNo=aStartPageNo; iPageNo<=aEndPageNo; iPageNo++)
+	    	{
+	    		if(!sortedConsumer.consumePage(iPageNo, extractPageItemsCached(this::getPDDocument, iPageNo, run)))
+	    			break;
+	    	}
+    	}
+    }
+    
+    public LazyExtractedData extractAllLazy(int aPrefetchPages) throws IOException
+    {
+    	return extractPagesLazy(1, getTotalPages(), aPrefetchPages);
+    }
+    
+    /**
+     * Pages are only extracted when first accessed via getContentItemListByPageNo(), 
+     * the next aPrefetchPages pages are extracted in the background.
+     * <br>
+     * The extractor must not be released while the returned data is in use, 
+     * image names are numbered within their page. After a reset() of the extractor,
+     * the pages not loaded yet fail to load (logged, returned as null).
+     */
+    public LazyExtractedData extractPagesLazy(int aStartPageNo, int aEndPageNo, int aPrefetchPages) throws IOException
+    {
+    	if(aStartPageNo<=0)
+    		aStartPageNo = 1;
+    	
+    	if(aEndPageNo<=0 || aEndPageNo>getTotalPages())
+    		aEndPageNo = getTotalPages();
+    	
+    	// pages are extracted on demand, only the page time budget applies
+    	ExtractionRun run = newExtractionRun(false);
+    	// pages of the document at hand only, not of the one the extractor is reset to
+    	final long lDocGeneration = this.doc_generation;
+    	
+    	LazyExtractedData extracted = new LazyExtractedData(this.pdf_meta, aStartPageNo, aEndPageNo, aPrefetchPages, 
+    			(iPageNo) -> {
+    				checkDocGeneration(lDocGeneration);
+    				List<ContentItem> listPageItems = sortPageItems(
+    						extractPageItemsCached(() -> getPDDocument(lDocGeneration), iPageNo, run), 
+    						run.getPageMetrics(iPageNo));
+    				// reset while the page was extracted
+    				checkDocGeneration(lDocGeneration);
+    				int iImgCount = 0;
+    	    		for(ContentItem it : listPageItems)
+    	    		{
+    	            	if(it.getType()==Type.IMAGE)
+    	            		ExtractedData.setImageItemFileName(it, ++iImgCount);
+    	    		}
+    	    		return listPageItems;
+    			});
+    	// filled up as the pages are loaded
+    	extracted.setExtractionMetrics(run.metrics);
+    	extracted.setTimedOutPages(run.timed_out_pages);
+    	return extracted;
+    }
+    
+    /**
+     * Pre/post sort process, sort and number the pg_line_seq of a single page
+     */
+    private List<ContentItem> sortPageItems(List<ContentItem> aPageItems, PageMetrics aPageMetrics)
+    {
+    	long lStartNanos = System.nanoTime();
+    	aPageItems = preSortProcess(aPageItems);
+    	aPageItems = ContentUtil.sortContentItems(aPageItems, getSortingOrder());
+    	aPageItems = postSortProcess(aPageItems);
+    	if(aPageMetrics!=null)
+    		aPageMetrics.addElapsedNanos(Stage.SORTING, System.nanoTime()-lStartNanos);
+		
+    	int iPgLineSeq 	= 1;
+		for(ContentItem it : aPageItems)
+		{
+        	it.setPg_line_seq(iPgLineSeq++);
+		}
+		return aPageItems;
+    }
+    
+    @FunctionalInterface
+    private interface DocumentSupplier {
+    	public PDDocument get() throws IOException;
+    }
+    
+    /**
+     * Extraction options that change the extracted items.
+     * Sorting is not part of it as the items are cached before sorting.
+     */
+    private String getExtractOptionsKey()
+    {
+    	return String.join("|", 
+    			_version,
+    			"text="+this.is_extract_text, 
+    			"image="+this.is_extract_image, 
+    			"vector="+this.is_extract_vector,
+    			"resize="+this.is_resize_image,
+    			"group="+this.is_group_text_vertically,
+    			"layout="+this.is_detect_layout);
+    }
+    
+    /**
+     * Cache key of a page, changes with the pdf content and the extraction options.
+     */
+    private String getPageCacheKey(int iPageNo)
+    {
+    	if(this.content_hash==null)
+    		return null;
+    	return ExtractionCache.hash(this.content_hash+"|"+getExtractOptionsKey())+"_p"+iPageNo;
+    }
+    
+    /**
+     * Per-page fingerprint, e.g. to find out which pages are changed in a revised document
+     */
+    public String getPageFingerprint(int iPageNo) throws IOException
+    {
+    	PDDocument doc = getPDDocument();
+    	return ExtractionUtil.getPageFingerprint(doc, iPageNo-1, getStreamDigests(doc));
+    }
+    
+    /**
+     * Extracted items are looked up in cache by,
+     * <br> 1. pdf content hash & page no, without parsing the pdf
+     * <br> 2. page fingerprint, so unchanged pages of a revised pdf are not extracted again
+     */
+    private List<ContentItem> extractPageItemsCached(DocumentSupplier aDocSupplier, int iPageNo, 
+    		ExtractionRun aRun) throws IOException
+    {
+    	PageMetrics pageMetrics = aRun.getPageMetrics(iPageNo);
+    	ExtractionDeadline deadline = new ExtractionDeadline(this.page_timeout_ms, aRun.doc_deadline);
+    	long lStartNanos = System.nanoTime();
+    	try {
+    		List<ContentItem> listItems = extractPageItemsCached(aDocSupplier, iPageNo, pageMetrics, deadline);
+    		if(deadline.isTimedOut())
+    		{
+    			aRun.timed_out_pages.add(iPageNo);
+    			if(pageMetrics!=null)
+    				pageMetrics.increment(Counter.PAGES_TIMED_OUT, 1);
+    			logger.warning("Page "+iPageNo+" timed out after "
+    					+((System.nanoTime()-lStartNanos)/1_000_000)+" ms, "+listItems.size()+" items extracted.");
+    		}
+    		return listItems;
+    	}
+    	finally {
+    		if(pageMetrics!=null)
+    			pageMetrics.addElapsedNanos(Stage.TOTAL, System.nanoTime()-lStartNanos);
+    	}
+    }
+    
+    private List<ContentItem> extractPageItemsCached(DocumentSupplier aDocSupplier, int iPageNo, 
+    		PageMetrics aPageMetrics, ExtractionDeadline aDeadline) throws IOException
+    {
+    	ExtractionCache cache = this.load_options.getExtractionCache();
+    	String sCacheKey = cache!=null ? getPageCacheKey(iPageNo) : null;
+    	if(sCacheKey!=null)
+    	{
+    		String sCachedItems = cache.get(sCacheKey);
+    		if(sCachedItems!=null)
+    		{
+    			if(aPageMetrics!=null)
+    				aPageMetrics.increment(Counter.CACHE_HITS, 1);
+    			return DataUtil.fromJsonContentItems(new JSONArray(sCachedItems));
+    		}
+    	}
+    	
+    	// document out of time
+    	if(aDeadline.checkExpired())
+    		return new ArrayList<>();
+    	
+    	PDDocument doc = aDocSupplier.get();
+    	
+    	String sPageKey = null;
+    	if(cache!=null)
+    	{
+    		String sFingerprint = ExtractionUtil.getPageFingerprint(doc, iPageNo-1, getStreamDigests(doc));
+    		sPageKey = ExtractionCache.hash(sFingerprint+"|"+getExtractOptionsKey())+"_fp";
+    		
+    		String sCachedItems = cache.get(sPageKey);
+    		if(sCachedItems!=null)
+    		{
+    			if(aPageMetrics!=null)
+    				aPageMetrics.increment(Counter.CACHE_HITS, 1);
+    			List<ContentItem> listItems = DataUtil.fromJsonContentItems(new JSONArray(sCachedItems));
+    			// same page content may be at another page no
+    			for(ContentItem it : listItems)
+    			{
+    				it.setPage_no(iPageNo);
+    			}
+    			if(sCacheKey!=null)
+    				cache.put(sCacheKey, DataUtil.toJsonContentItems(listItems).toString());
+    			return listItems;
+    		}
+    	}
+    	
+    	List<ContentItem> listItems = extractPageItems(doc, iPageNo, aPageMetrics, aDeadline);
+    	
+    	// partial page is not cached
+    	if(cache!=null && !aDeadline.isTimedOut())
+    	{
+    		String sItems = DataUtil.toJsonContentItems(listItems).toString();
+    		cache.put(sPageKey, sItems);
+    		if(sCacheKey!=null)
+    			cache.put(sCacheKey, sItems);
+    	}
+    	return listItems;
+    }
+    
+    private List<ContentItem> extractPageItems(PDDocument aDoc, int iPageNo, PageMetrics aPageMetrics, 
+    		ExtractionDeadline aDeadline) throws IOException
+    {
+    	List<ContentItem> listText 		= new ArrayList<>();
+    	List<ContentItem> listImage 	= new ArrayList<>();
+    	List<ContentItem> listVector 	= new ArrayList<>();
+    	
+    	Map<String, Rectangle> mapInterestAreas = null;
+    	
+    	if(this.is_detect_layout && !aDeadline.checkExpired())
+    	{
+    		long lStartNanos = System.nanoTime();
+    		mapInterestAreas = detectLayoutROI(aDoc, iPageNo);
+    		if(aPageMetrics!=null)
+    			aPageMetrics.addElapsedNanos(Stage.LAYOUT_DETECTION, System.nanoTime()-lStartNanos);
+    	}
+    	////
+    	// Text, images & vectors are collected in a single pass of the page content stream
+    	Map<Type, List<ContentItem>> mapPageItems = ExtractionUtil.extractPageContent(
+    			aDoc, iPageNo-1, mapInterestAreas, new PageExtractOptions()
+    				.setExtractText(this.is_extract_text)
+    				.setExtractImage(this.is_extract_image)
+    				.setExtractVector(this.is_extract_vector)
+    				.setResizeImage(this.is_resize_image)
+    				.setPageMetrics(aPageMetrics)
+    				.setDeadline(aDeadline)
+    				.setImageCache(this.is_extract_image ? getImageCache(aDoc) : null));
+    	////
+    	if(this.is_extract_text)
+    	{
+	    	listText = mapPageItems.get(Type.TEXT);
+	    	
+	    	if(this.is_group_text_vertically)
+	    	{
+	    		long lStartNanos = System.nanoTime();
+	    		listText = TextExtractUtil.groupTextByParagraph(listText);
+	    		if(aPageMetrics!=null)
+	    			aPageMetrics.addElapsedNanos(Stage.GROUPING, System.nanoTime()-lStartNanos);
+	    	}
+    	}
+    	////
+    	if(this.is_extract_image)
+    	{
+	    	listImage = mapPageItems.get(Type.IMAGE);
+    	}
+    	////
+    	if(this.is_extract_vector)
+    	{
+    		List<ContentItem> listVectorTemp = mapPageItems.get(Type.VECTOR);
+    		
+    		for(ContentItem it : listVectorTemp)
+    		{
+    			VectorData vData = new VectorData(new JSONObject(it.getData()));
+    			if(vData.getPathSegmentCount()>20000)
+    			{
+    				// page rendering can not be stopped halfway
+    				if(aDeadline.checkExpired())
+    					continue;
+    				
+    				//image
+    				Rectangle2D rect = vData.getVector().getBounds();
+    				BufferedImage imgPage = ContentUtil.renderPagePreview(getRenderCache(aDoc), iPageNo, 1.0f, false);	    				
+    				BufferedImage imgVector = imgPage.getSubimage((int)rect.getX(), (int)rect.getY(), (int)rect.getWidth(), (int)rect.getHeight());
+    				
+    				if(imgVector!=null)
+    				{
+    					ContentItem item = ContentUtil.imageToContentItem(imgVector, "jpg", iPageNo, rect);
+	    				item.setExtract_seq(-1);
+	    				listImage.add(item);
+	    				if(aPageMetrics!=null)
+	    					aPageMetrics.increment(Counter.VECTOR_AS_IMAGE, 1);
+    				}
+    			}
+    			else
+    			{
+    				listVector.add(it);
+    			}
+    		}
+    	}
+    	
+    	
+    	List<ContentItem> listItems = new ArrayList<>();
+    	if(listText.size()>0)
+    		listItems.addAll(listText);
+    	if(listImage.size()>0)
+    		listItems.addAll(listImage);
+    	if(listVector.size()>0)
+    		listItems.addAll(listVector);
+    	return listItems;
+    }
+    
+    private List<ContentItem> extractPageItemsParallel(int aStartPageNo, int aEndPageNo, 
+    		ExtractionRun aRun) throws IOException
+    {
+    	return extractPageItemsParallel(toPageNoList(aStartPageNo, aEndPageNo), aRun);
+    }
+    
+    private List<ContentItem> extractPageItemsParallel(List<Integer> aPageNos, 
+    		ExtractionRun aRun) throws IOException
+    {
+    	List<ContentItem> listItems = new ArrayList<>();
+    	// merge back in page order, same as sequential extraction
+    	extractPageItemsParallel(aPageNos, aPageNos.size(), aRun,
+    			(iPageNo, listPageItems) -> {
+    				listItems.addAll(listPageItems);
+    				return true;
+    			});
+    	return listItems;
+    }
+    
+    private static List<Integer> toPageNoList(int aStartPageNo, int aEndPageNo)
+    {
+    	List<Integer> listPageNos = new ArrayList<>();
+    	for(int iPageNo=aStartPageNo; iPageNo<=aEndPageNo; iPageNo++)
+    	{
+    		listPageNos.add(iPageNo);
+    	}
+    	return listPageNos;
+    }
+    
+    /**
+     * Pages are handed to aPageConsumer in the order of aPageNos on the calling thread, 
+     * at most aMaxPendingPages are extracted ahead of the consumer.
+     */
+    private void extractPageItemsParallel(List<Integer> aPageNos, int aMaxPendingPages, 
+    		ExtractionRun aRun, PageConsumer aPageConsumer) throws IOException
+    {
+    	int iPageCount 	= aPageNos.size();
+    	int iWorkers 	= Math.min(this.parallelism, iPageCount);
+    	
+    	// index of the page in aPageNos
+    	Queue<Integer> queuePageIdx = new ConcurrentLinkedQueue<>();
+    	for(int i=0; i<iPageCount; i++)
+    	{
+    		queuePageIdx.add(i);
+    	}
+    	
+    	Semaphore semPending = new Semaphore(Math.max(iWorkers, aMaxPendingPages));
+    	List<CompletableFuture<List<ContentItem>>> listPageFutures = new ArrayList<>();
+    	for(int i=0; i<iPageCount; i++)
+    	{
+    		listPageFutures.add(new CompletableFuture<>());
+    	}
+    	
+    	ExecutorService executor = Executors.newFixedThreadPool(iWorkers);
+    	try {
+	    	for(int w=0; w<iWorkers; w++)
+	    	{
+	    		// PDDocument is not thread-safe, 1st worker reuses the loaded doc
+	    		// others only load their own when a page is not in cache
+	    		final boolean isOwnDoc = (w>0);
+	    		executor.submit(() -> {
+	    			PDDocument[] docOwn = new PDDocument[1];
+	    			DocumentSupplier docSupplier = !isOwnDoc ? this::getPDDocument : () -> {
+	    				if(docOwn[0]==null)
+	    					docOwn[0] = loadOrigPdf();
+	    				return docOwn[0];
+	    			};
+	    			
+	    			Integer iPageIdx = null;
+	    			try {
+	    				while(true)
+	    				{
+	    					semPending.acquire();
+	    					iPageIdx = queuePageIdx.poll();
+	    					if(iPageIdx==null)
+	    						break;
+	    					listPageFutures.get(iPageIdx).complete(extractPageItemsCached(docSupplier, aPageNos.get(iPageIdx), aRun));
+	    				}
+	    			}
+	    			catch(Throwable t) {
+	    				if(iPageIdx!=null)
+	    					listPageFutures.get(iPageIdx).completeExceptionally(t);
+	    				// fail the remaining pages as this worker is gone
+	    				while((iPageIdx = queuePageIdx.poll())!=null)
+	    					listPageFutures.get(iPageIdx).completeExceptionally(t);
+	    			}
+	    			finally {
+	    				if(docOwn[0]!=null)
+	    					try {
+	    						releaseRenderCache(docOwn[0]);
+	    						releaseImageCache(docOwn[0]);
+	    						releaseStreamDigests(docOwn[0]);
+	    						docOwn[0].close();
+	    					} catch (IOException e) {
+	    						e.printStackTrace();
+	    					}
+	    			}
+	    		});
+	    	}
+	    	
+	    	for(int i=0; i<iPageCount; i++)
+	    	{
+	    		List<ContentItem> listPageItems = listPageFutures.get(i).get();
+	    		listPageFutures.set(i, null);
+	    		semPending.release();
+	    		if(!aPageConsumer.consumePage(aPageNos.get(i), listPageItems))
+	    			break;
+	    	}
+    	}
+    	catch (InterruptedException e) {
+    		Thread.currentThread().interrupt();
+    		throw new IOException(e);
+		}
+    	catch (ExecutionException e) {
+    		Throwable cause = e.getCause();
+    		if(cause instanceof IOException)
+    			throw (IOException) cause;
+    		throw new IOException(cause);
+		}
+    	finally {
+    		queuePageIdx.clear();
+    		executor.shutdownNow();
+    		try {
+    			// 1st worker may still be using pdf_doc
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+    	}
+    }
+    
+    private Map<String, Rectangle> detectLayoutROI(PDDocument aDoc, int iPageNo) throws IOException
+    {
+    	// layout model is shared by all workers
+    	synchronized(this)
+    	{
+			if(docLayoutDetector==null)
+				docLayoutDetector = new DocLayoutDetector();
+			
+			return docLayoutDetector.detectLayoutROI(getRenderCache(aDoc), iPageNo);
+    	}
+    }
+    
+    /**
+     * Max total size of the rendered pages cached per document, 0 to disable
+     */
+    public void setRenderCacheMaxBytes(long aMaxBytes)
+    {
+    	this.render_cache_bytes = aMaxBytes;
+    }
+    
+    public long getRenderCacheMaxBytes()
+    {
+    	return this.render_cache_bytes;
+    }
+    
     public void setDetectDocLayout(boolean isDetectLayout)
     {
     	this.is_detect_layout = isDetectLayout;
@@ -290,12 +1247,24 @@ abstract public class AbstractExtractor
     
     public BufferedImage renderPagePreview(int iPageNo, float aScale)
     {
-    	return ContentUtil.renderPagePreview(this.pdf_doc, iPageNo, aScale);
+    	try {
+    		// own copy, the cached page is shared
+    		BufferedImage img = ContentUtil.renderPagePreview(getRenderCache(getPDDocument()), iPageNo, aScale);
+			return img!=null ? ContentUtil.copyImage(img) : null;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+    	return null;
     }
     
     public BufferedImage renderPageArea(int iPageNo, Rectangle2D aROI, float aScale)
     {
-    	return ContentUtil.renderPageArea(this.pdf_doc, iPageNo, aROI, aScale);
+    	try {
+    		return ContentUtil.renderPageArea(getRenderCache(getPDDocument()), iPageNo, aROI, aScale);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+    	return null;
     }
     
     //////////////////    
@@ -7,11 +7,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.ImageType;
-import org.apache.pdfbox.rendering.PDFRenderer;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import hl.doc.extractor.pdf.extraction.util.base.PageRenderCache;
 import hl.ml.djl.detection.docs.layout.paddle.PPDocLayout;
 
 public class DocLayoutDetector 
@@ -33,11 +32,19 @@ public class DocLayoutDetector
 	}
 	
 	public Map<String, Rectangle> detectLayoutROI(PDDocument pdf_doc, int iPageNo) throws IOException
+	{
+		return detectLayoutROI(new PageRenderCache(pdf_doc, 0), iPageNo);
+	}
+	
+	/**
+	 * Page is rendered at 72 dpi from the document's render cache, shared with page preview
+	 */
+	public Map<String, Rectangle> detectLayoutROI(PageRenderCache aRenderCache, int iPageNo) throws IOException
 	{
 		Map<String, Rectangle> mapInterestAreas = new HashMap<>();
 		
-		PDFRenderer pdfRenderer = new PDFRenderer(pdf_doc);
-        BufferedImage imagePage = pdfRenderer.renderImageWithDPI(iPageNo-1, 72, ImageType.RGB);
+        // exact rendering, the detected areas must not depend on an earlier preview
+        BufferedImage imagePage = aRenderCache.renderPage(iPageNo, 72, false);
         
         JSONArray jsonArrDets = ppDocLayout.getDocLayoutInJson(imagePage);
         
@@ -0,0 +1,214 @@
+package hl.doc.extractor.pdf.extraction.base;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent on-disk cache of extraction results, one gzip file per entry.
+ * <br>
+ * Size-bounded, the least recently used entries are evicted once the total
+ * size of the cache folder goes beyond the limit.
+ */
+public class ExtractionCache {
+
+	private static Logger logger = Logger.getLogger(ExtractionCache.class.getName());
+	private static String FILE_EXT = ".json.gz";
+
+	private final File cache_dir;
+	private final long max_cache_bytes;
+
+	// access-ordered, eldest entry is the least recently used
+	private final LinkedHashMap<String, Long> mapEntrySize = new LinkedHashMap<>(16, 0.75f, true);
+	private long total_bytes = 0;
+
+	public ExtractionCache(File aCacheDir, long aMaxCacheBytes)
+	{
+		this.cache_dir = aCacheDir;
+		this.max_cache_bytes = aMaxCacheBytes;
+		this.cache_dir.mkdirs();
+
+		File[] files = this.cache_dir.listFiles((dir, name) -> name.endsWith(FILE_EXT));
+		if(files!=null)
+		{
+			Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+			for(File f : files)
+			{
+				String sKey = f.getName().substring(0, f.getName().length()-FILE_EXT.length());
+				mapEntrySize.put(sKey, f.length());
+				total_bytes += f.length();
+			}
+		}
+		synchronized(this)
+		{
+			evict();
+		}
+	}
+
+	public File getCacheDir()
+	{
+		return this.cache_dir;
+	}
+
+	public long getMaxCacheBytes()
+	{
+		return this.max_cache_bytes;
+	}
+
+	public synchronized long getCacheBytes()
+	{
+		return this.total_bytes;
+	}
+
+	private File toFile(String aKey)
+	{
+		return new File(this.cache_dir, aKey+FILE_EXT);
+	}
+
+	public String get(String aKey)
+	{
+		synchronized(this)
+		{
+			if(mapEntrySize.get(aKey)==null)
+				return null;
+		}
+
+		File f = toFile(aKey);
+		try(InputStream in = new GZIPInputStream(new FileInputStream(f)))
+		{
+			String sValue = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			f.setLastModified(System.currentTimeMillis());
+			return sValue;
+		}
+		catch(IOException e)
+		{
+			// removed by another process or corrupted
+			logger.log(Level.WARNING, "Unable to read cache "+f.getName(), e);
+			remove(aKey);
+		}
+		return null;
+	}
+
+	public void put(String aKey, String aValue)
+	{
+		File f = toFile(aKey);
+		try {
+			File fileTemp = File.createTempFile(aKey, ".tmp", this.cache_dir);
+			try(OutputStream out = new GZIPOutputStream(new FileOutputStream(fileTemp)))
+			{
+				out.write(aValue.getBytes(StandardCharsets.UTF_8));
+			}
+			Files.move(fileTemp.toPath(), f.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			synchronized(this)
+			{
+				Long lOldSize = mapEntrySize.put(aKey, f.length());
+				if(lOldSize!=null)
+					total_bytes -= lOldSize;
+				total_bytes += f.length();
+				evict();
+			}
+		}
+		catch(IOException e)
+		{
+			logger.log(Level.WARNING, "Unable to write cache "+f.getName(), e);
+		}
+	}
+
+	public synchronized void remove(String aKey)
+	{
+		Long lSize = mapEntrySize.remove(aKey);
+		if(lSize!=null)
+		{
+			total_bytes -= lSize;
+			toFile(aKey).delete();
+		}
+	}
+
+	public synchronized void clear()
+	{
+		for(String sKey : mapEntrySize.keySet())
+		{
+			toFile(sKey).delete();
+		}
+		mapEntrySize.clear();
+		total_bytes = 0;
+	}
+
+	private void evict()
+	{
+		Iterator<Map.Entry<String, Long>> iter = mapEntrySize.entrySet().iterator();
+		while(total_bytes>this.max_cache_bytes && iter.hasNext())
+		{
+			Map.Entry<String, Long> e = iter.next();
+			toFile(e.getKey()).delete();
+			total_bytes -= e.getValue();
+			iter.remove();
+		}
+	}
+
+	//////////////////
+
+	private static MessageDigest newDigest()
+	{
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static String hash(String aValue)
+	{
+		MessageDigest digest = newDigest();
+		digest.update(aValue.getBytes(StandardCharsets.UTF_8));
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	public static String hash(byte[] aBytes)
+	{
+		return HexFormat.of().formatHex(newDigest().digest(aBytes));
+	}
+
+	public static String hash(ByteBuffer aBuffer)
+	{
+		MessageDigest digest = newDigest();
+		digest.update(aBuffer.duplicate());
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	public static String hash(File aFile) throws IOException
+	{
+		MessageDigest digest = newDigest();
+		try(InputStream in = new FileInputStream(aFile))
+		{
+			byte[] buffer = new byte[64*1024];
+			int iRead = 0;
+			while((iRead = in.read(buffer))>0)
+			{
+				digest.update(buffer, 0, iRead);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+}
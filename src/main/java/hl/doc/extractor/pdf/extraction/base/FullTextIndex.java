@@ -0,0 +1,554 @@
+package hl.doc.extractor.pdf.extraction.base;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractedData;
+import hl.doc.extractor.pdf.extraction.util.base.ContentSearchIndex;
+
+/**
+ * Persistent full-text index of the text items of many extracted documents, to find the
+ * documents containing a phrase without extracting them again.
+ * <br>
+ * Added documents are buffered in memory and written as a new append-only segment file on
+ * commit() (or once the buffer is full). Segments are never modified, a background thread
+ * merges the smallest ones into a single segment once there are more than the merge factor.
+ * <br>
+ * Segment files are synced to disk before they are published. A segment that can not be read
+ * when the index is opened (e.g. torn by a crash) is renamed with a .corrupt extension and skipped.
+ * <br>
+ * A document added again with the same id supersedes the previous one. Hits hold the page no,
+ * pg_line_seq and bounding box of the matched text items, ready for ContentUtil.highlightItems().
+ */
+public final class FullTextIndex implements Closeable {
+
+	private static Logger logger = Logger.getLogger(FullTextIndex.class.getName());
+
+	public static int DEFAULT_MERGE_FACTOR 			= 8;
+	public static int DEFAULT_MAX_BUFFERED_POSTINGS = 1_000_000;
+	// longer tokens are not indexed but still count as a word of a phrase
+	private static int MAX_TOKEN_LENGTH 			= 128;
+
+	private final File index_dir;
+	private int merge_factor 			= DEFAULT_MERGE_FACTOR;
+	private int max_buffered_postings 	= DEFAULT_MAX_BUFFERED_POSTINGS;
+
+	// sorted by gen, replaced as a whole under the write lock
+	private List<FullTextSegment> listSegments = new ArrayList<>();
+	private final ReadWriteLock segments_lock = new ReentrantReadWriteLock();
+	private final AtomicInteger next_gen = new AtomicInteger(1);
+	private long next_version = 1;
+	// latest committed version of each document
+	private final Map<String, Long> mapDocVersions = new ConcurrentHashMap<>();
+
+	// documents added since the last commit
+	private final List<FullTextSegment.DocItems> listBufferedDocs = new ArrayList<>();
+	private final Map<String, int[]> mapBufferedPostings = new HashMap<>(); // term -> count, (doc, item, pos)...
+	private int buffered_postings = 0;
+
+	private final ExecutorService mergeExecutor;
+	private boolean is_merge_scheduled = false;
+	private boolean is_closed = false;
+
+	public FullTextIndex(File aIndexDir) throws IOException
+	{
+		this.index_dir = aIndexDir;
+		this.index_dir.mkdirs();
+
+		// left over by an interrupted commit or merge
+		File[] tempFiles = this.index_dir.listFiles((dir, name) -> name.endsWith(".tmp"));
+		if(tempFiles!=null)
+		{
+			for(File f : tempFiles)
+				f.delete();
+		}
+
+		List<FullTextSegment> listOpened = new ArrayList<>();
+		try {
+			File[] files = this.index_dir.listFiles((dir, name) -> name.endsWith(FullTextSegment.FILE_EXT));
+			if(files!=null)
+			{
+				for(File f : files)
+				{
+					// gen of an unreadable segment is not reused
+					next_gen.set(Math.max(next_gen.get(), parseGen(f)+1));
+					try {
+						listOpened.add(FullTextSegment.open(f));
+					}
+					catch(IOException e)
+					{
+						File fileCorrupt = new File(f.getPath()+".corrupt");
+						logger.log(Level.WARNING, "Skipped unreadable full text segment "+f.getName()
+							+", renamed to "+fileCorrupt.getName(), e);
+						f.renameTo(fileCorrupt);
+					}
+				}
+			}
+
+			// sources of a merge that completed before they could be deleted
+			Set<Integer> setReplacedGens = new HashSet<>();
+			for(FullTextSegment seg : listOpened)
+			{
+				for(int iGen : seg.getReplacedGens())
+					setReplacedGens.add(iGen);
+			}
+
+			listOpened.sort(Comparator.comparingInt(FullTextSegment::getGen));
+			long lMaxVersion = 0;
+			for(FullTextSegment seg : listOpened)
+			{
+				next_gen.set(Math.max(next_gen.get(), seg.getGen()+1));
+				if(setReplacedGens.contains(seg.getGen()))
+				{
+					seg.close();
+					seg.getFile().delete();
+					continue;
+				}
+
+				listSegments.add(seg);
+				for(int d=0; d<seg.getDocCount(); d++)
+				{
+					mapDocVersions.merge(seg.getDocId(d), seg.getDocVersion(d), Math::max);
+					lMaxVersion = Math.max(lMaxVersion, seg.getDocVersion(d));
+				}
+			}
+			this.next_version = lMaxVersion+1;
+		}
+		catch(IOException | RuntimeException e)
+		{
+			// no segment is left open by a failed constructor
+			for(FullTextSegment seg : listOpened)
+				seg.close();
+			throw e;
+		}
+
+		this.mergeExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "FullTextIndex-merge");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduleMerge();
+	}
+
+	public File getIndexDir()
+	{
+		return this.index_dir;
+	}
+
+	public void setMergeFactor(int aMergeFactor)
+	{
+		this.merge_factor = Math.max(2, aMergeFactor);
+	}
+
+	public int getMergeFactor()
+	{
+		return this.merge_factor;
+	}
+
+	public void setMaxBufferedPostings(int aMaxPostings)
+	{
+		this.max_buffered_postings = aMaxPostings;
+	}
+
+	public int getMaxBufferedPostings()
+	{
+		return this.max_buffered_postings;
+	}
+
+	/**
+	 * Text items of aData are searchable once committed
+	 */
+	public synchronized void addDocument(String aDocId, ExtractedData aData) throws IOException
+	{
+		addDocument(aDocId, aData.getContentItemList());
+	}
+
+	public synchronized void addDocument(String aDocId, List<ContentItem> aContentItems) throws IOException
+	{
+		if(this.is_closed)
+			throw new IOException("Full text index is closed");
+
+		int iDoc = listBufferedDocs.size();
+		FullTextSegment.DocItems docItems = new FullTextSegment.DocItems(aDocId, next_version++);
+		listBufferedDocs.add(docItems);
+
+		for(ContentItem it : aContentItems)
+		{
+			if(it.getType()!=Type.TEXT || it.getData()==null)
+				continue;
+
+			List<String> listTokens = ContentSearchIndex.tokenize(it.getData().toLowerCase());
+			if(listTokens.isEmpty())
+				continue;
+
+			int iItem = docItems.addItem(it.getPage_no(), it.getPg_line_seq(),
+					(float) it.getX1(), (float) it.getY1(), (float) it.getWidth(), (float) it.getHeight());
+			for(int iPos=0; iPos<listTokens.size(); iPos++)
+			{
+				String sToken = listTokens.get(iPos);
+				if(sToken.length()<=MAX_TOKEN_LENGTH)
+					addPosting(sToken, iDoc, iItem, iPos);
+			}
+		}
+
+		if(buffered_postings>=max_buffered_postings)
+			commit();
+	}
+
+	private void addPosting(String aTerm, int aDoc, int aItem, int aPos)
+	{
+		int[] postings = mapBufferedPostings.get(aTerm);
+		if(postings==null)
+		{
+			postings = new int[1+3*4];
+			mapBufferedPostings.put(aTerm, postings);
+		}
+		int iCount = postings[0];
+		if(1+(iCount+1)*3>postings.length)
+		{
+			postings = Arrays.copyOf(postings, 1+(postings.length-1)*2);
+			mapBufferedPostings.put(aTerm, postings);
+		}
+		postings[1+iCount*3] 	= aDoc;
+		postings[1+iCount*3+1] 	= aItem;
+		postings[1+iCount*3+2] 	= aPos;
+		postings[0] = iCount+1;
+		buffered_postings++;
+	}
+
+	/**
+	 * Writes the documents added so far as a new segment
+	 */
+	public synchronized void commit() throws IOException
+	{
+		if(listBufferedDocs.isEmpty())
+			return;
+
+		int iGen = next_gen.getAndIncrement();
+		File fileTemp = File.createTempFile("seg_", ".tmp", this.index_dir);
+		try(FullTextSegment.Writer writer = new FullTextSegment.Writer(fileTemp, iGen, new int[0]))
+		{
+			for(Map.Entry<String, int[]> e : new TreeMap<>(mapBufferedPostings).entrySet())
+			{
+				int[] postings = e.getValue();
+				writer.addTerm(e.getKey(), Arrays.copyOfRange(postings, 1, 1+postings[0]*3), postings[0]);
+			}
+			for(FullTextSegment.DocItems docItems : listBufferedDocs)
+			{
+				writer.addDoc(docItems);
+			}
+			writer.finish();
+		}
+		FullTextSegment seg = publish(fileTemp, iGen);
+
+		segments_lock.writeLock().lock();
+		try {
+			List<FullTextSegment> listNew = new ArrayList<>(listSegments);
+			listNew.add(seg);
+			listSegments = listNew;
+			for(FullTextSegment.DocItems docItems : listBufferedDocs)
+			{
+				mapDocVersions.merge(docItems.doc_id, docItems.version, Math::max);
+			}
+		}
+		finally {
+			segments_lock.writeLock().unlock();
+		}
+
+		listBufferedDocs.clear();
+		mapBufferedPostings.clear();
+		buffered_postings = 0;
+		scheduleMerge();
+	}
+
+	/**
+	 * The segment is synced to disk before it is moved into place, so that a crash never
+	 * leaves a published segment partly written
+	 */
+	private FullTextSegment publish(File aTempFile, int aGen) throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(aTempFile.toPath(), StandardOpenOption.WRITE))
+		{
+			channel.force(true);
+		}
+
+		File f = new File(this.index_dir, String.format("seg_%08d%s", aGen, FullTextSegment.FILE_EXT));
+		Files.move(aTempFile.toPath(), f.toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		// the rename itself, before the sources of a merge are deleted
+		try(FileChannel channel = FileChannel.open(this.index_dir.toPath(), StandardOpenOption.READ))
+		{
+			channel.force(true);
+		}
+		catch(IOException e)
+		{
+			// directories can not be synced on some platforms
+		}
+		return FullTextSegment.open(f);
+	}
+
+	/**
+	 * Gen from the segment file name, 0 when not a segment name
+	 */
+	private static int parseGen(File aSegmentFile)
+	{
+		String sName = aSegmentFile.getName();
+		try {
+			return Integer.parseInt(sName.substring("seg_".length(), sName.length()-FullTextSegment.FILE_EXT.length()));
+		}
+		catch(RuntimeException e)
+		{
+			return 0;
+		}
+	}
+
+	/**
+	 * Documents containing the words of aPhrase in sequence within a text item (case-insensitive),
+	 * by doc id then page no. Each hit item holds aPhrase as data.
+	 */
+	public Map<String, Map<Integer, List<ContentItem>>> searchPhrase(String aPhrase) throws IOException
+	{
+		Map<String, Map<Integer, List<ContentItem>>> mapDocHits = new LinkedHashMap<>();
+		List<String> listTokens = ContentSearchIndex.tokenize(aPhrase.toLowerCase());
+		if(listTokens.isEmpty())
+			return mapDocHits;
+
+		segments_lock.readLock().lock();
+		try {
+			for(FullTextSegment seg : listSegments)
+			{
+				int[] hits = searchPhrase(seg, listTokens);
+				if(hits==null)
+					continue;
+
+				for(int i=0; i<hits.length; i+=3)
+				{
+					int iDoc = hits[i], iItem = hits[i+1];
+					// same item matched more than once
+					if(i>0 && hits[i-3]==iDoc && hits[i-2]==iItem)
+						continue;
+
+					String sDocId = seg.getDocId(iDoc);
+					if(mapDocVersions.get(sDocId).longValue()!=seg.getDocVersion(iDoc))
+						continue;
+
+					ContentItem item = seg.readItem(iDoc, iItem, aPhrase);
+					mapDocHits.computeIfAbsent(sDocId, k -> new TreeMap<>())
+						.computeIfAbsent(item.getPage_no(), k -> new ArrayList<>()).add(item);
+				}
+			}
+		}
+		finally {
+			segments_lock.readLock().unlock();
+		}
+		return mapDocHits;
+	}
+
+	/**
+	 * (doc, item, start position) of the phrase, joining the postings of each
+	 * token on the next position within the same item
+	 */
+	private static int[] searchPhrase(FullTextSegment aSegment, List<String> aTokens) throws IOException
+	{
+		int[] matched = null;
+		int iMatched = 0;
+		for(int t=0; t<aTokens.size(); t++)
+		{
+			String sToken = aTokens.get(t);
+			if(sToken.length()>MAX_TOKEN_LENGTH)
+				return null;
+
+			int[] postings = aSegment.readPostings(sToken);
+			if(postings==null)
+				return null;
+
+			if(matched==null)
+			{
+				matched = postings;
+				iMatched = postings.length;
+				continue;
+			}
+
+			int iKept = 0, j = 0;
+			for(int i=0; i<iMatched; i+=3)
+			{
+				int iDoc = matched[i], iItem = matched[i+1], iPos = matched[i+2]+t;
+				while(j<postings.length && compare(postings, j, iDoc, iItem, iPos)<0)
+					j+=3;
+				if(j<postings.length && compare(postings, j, iDoc, iItem, iPos)==0)
+				{
+					matched[iKept++] = iDoc;
+					matched[iKept++] = iItem;
+					matched[iKept++] = matched[i+2];
+				}
+			}
+			iMatched = iKept;
+			if(iMatched==0)
+				return null;
+		}
+		return Arrays.copyOf(matched, iMatched);
+	}
+
+	private static int compare(int[] aPostings, int j, int aDoc, int aItem, int aPos)
+	{
+		if(aPostings[j]!=aDoc)
+			return Integer.compare(aPostings[j], aDoc);
+		if(aPostings[j+1]!=aItem)
+			return Integer.compare(aPostings[j+1], aItem);
+		return Integer.compare(aPostings[j+2], aPos);
+	}
+
+	public int getDocumentCount()
+	{
+		return mapDocVersions.size();
+	}
+
+	public int getSegmentCount()
+	{
+		segments_lock.readLock().lock();
+		try {
+			return listSegments.size();
+		}
+		finally {
+			segments_lock.readLock().unlock();
+		}
+	}
+
+	//////////////////
+
+	private synchronized void scheduleMerge()
+	{
+		if(is_merge_scheduled || is_closed || getSegmentCount()<=merge_factor)
+			return;
+		is_merge_scheduled = true;
+		mergeExecutor.execute(this::mergeSegments);
+	}
+
+	private void mergeSegments()
+	{
+		boolean isMerged = false;
+		try {
+			while(true)
+			{
+				List<FullTextSegment> listSources;
+				segments_lock.readLock().lock();
+				try {
+					if(listSegments.size()<=merge_factor)
+						break;
+					// smallest segments first, merging them keeps the merge cost low
+					listSources = new ArrayList<>(listSegments);
+					listSources.sort(Comparator.comparingLong(seg -> seg.getFile().length()));
+					listSources = new ArrayList<>(listSources.subList(0, merge_factor));
+				}
+				finally {
+					segments_lock.readLock().unlock();
+				}
+				mergeSegments(listSources);
+			}
+			isMerged = true;
+		}
+		catch(IOException e)
+		{
+			logger.log(Level.WARNING, "Unable to merge full text segments in "+index_dir.getName(), e);
+		}
+		finally {
+			synchronized(this)
+			{
+				is_merge_scheduled = false;
+				// segments committed after the last check
+				if(isMerged)
+					scheduleMerge();
+			}
+		}
+	}
+
+	private void mergeSegments(List<FullTextSegment> aSources) throws IOException
+	{
+		int iGen = next_gen.getAndIncrement();
+		File fileTemp = File.createTempFile("seg_", ".tmp", this.index_dir);
+		// sources in gen order, so that merged doc ordinals follow the commits
+		aSources.sort(Comparator.comparingInt(FullTextSegment::getGen));
+		FullTextSegment.writeMerged(aSources, fileTemp, iGen, mapDocVersions);
+		FullTextSegment seg = publish(fileTemp, iGen);
+
+		segments_lock.writeLock().lock();
+		try {
+			List<FullTextSegment> listNew = new ArrayList<>(listSegments);
+			listNew.removeAll(aSources);
+			listNew.add(seg);
+			listNew.sort(Comparator.comparingInt(FullTextSegment::getGen));
+			listSegments = listNew;
+		}
+		finally {
+			segments_lock.writeLock().unlock();
+		}
+
+		// no query holds the sources anymore
+		for(FullTextSegment src : aSources)
+		{
+			src.close();
+			src.getFile().delete();
+		}
+	}
+
+	/**
+	 * Commits the buffered documents and waits for the background merge to complete
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		synchronized(this)
+		{
+			if(is_closed)
+				return;
+			commit();
+			is_closed = true;
+		}
+
+		mergeExecutor.shutdown();
+		try {
+			mergeExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		segments_lock.writeLock().lock();
+		try {
+			for(FullTextSegment seg : listSegments)
+				seg.close();
+			listSegments = new ArrayList<>();
+		}
+		finally {
+			segments_lock.writeLock().unlock();
+		}
+	}
+}
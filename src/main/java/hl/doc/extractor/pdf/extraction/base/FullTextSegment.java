@@ -0,0 +1,532 @@
+package hl.doc.extractor.pdf.extraction.base;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
+
+/**
+ * Immutable segment file of a {@link FullTextIndex}, written once and only read afterwards.
+ * <br>
+ * Layout : header (gen and the gens of the segments it replaces), postings of each term,
+ * items (page no, line seq and bounding box), doc table, term dictionary and a fixed size footer.
+ * Postings are (doc, item, token position) sorted in that order, delta encoded as varints.
+ * Doc table and term dictionary are held in memory, postings and items are read on demand.
+ */
+class FullTextSegment implements Closeable {
+
+	static final String FILE_EXT 	= ".fts";
+	private static final int MAGIC 	= 0x46545331; // FTS1
+	private static final int FORMAT_VERSION = 1;
+	private static final int ITEM_BYTES 	= 24;
+	private static final int FOOTER_BYTES 	= 20;
+
+	/**
+	 * Text items of a document, page no / line seq / x, y, w, h of each item
+	 */
+	static class DocItems
+	{
+		final String doc_id;
+		final long version;
+		int item_count 		= 0;
+		int[] page_nos 		= new int[16];
+		int[] line_seqs 	= new int[16];
+		float[] boxes 		= new float[64];
+
+		DocItems(String aDocId, long aVersion)
+		{
+			this.doc_id = aDocId;
+			this.version = aVersion;
+		}
+
+		int addItem(int aPageNo, int aLineSeq, float x, float y, float w, float h)
+		{
+			if(item_count==page_nos.length)
+			{
+				page_nos 	= Arrays.copyOf(page_nos, item_count*2);
+				line_seqs 	= Arrays.copyOf(line_seqs, item_count*2);
+				boxes 		= Arrays.copyOf(boxes, item_count*8);
+			}
+			page_nos[item_count] 	= aPageNo;
+			line_seqs[item_count] 	= aLineSeq;
+			boxes[item_count*4] 	= x;
+			boxes[item_count*4+1] 	= y;
+			boxes[item_count*4+2] 	= w;
+			boxes[item_count*4+3] 	= h;
+			return item_count++;
+		}
+	}
+
+	private final File segment_file;
+	private final FileChannel channel;
+	private final int gen;
+	private final int[] replaced_gens;
+
+	private final String[] doc_ids;
+	private final long[] doc_versions;
+	private final long[] item_offsets;
+	private final int[] item_counts;
+
+	// sorted
+	private final String[] terms;
+	private final long[] posting_offsets;
+	private final int[] posting_lengths;
+
+	private FullTextSegment(File aFile) throws IOException
+	{
+		this.segment_file = aFile;
+		this.channel = FileChannel.open(aFile.toPath(), StandardOpenOption.READ);
+		try {
+			long lSize = channel.size();
+			if(lSize<FOOTER_BYTES)
+				throw new IOException("Truncated full text segment "+aFile.getName());
+			ByteBuffer footer = readBytes(lSize-FOOTER_BYTES, FOOTER_BYTES);
+			long lDocTableOffset 	= footer.getLong();
+			long lDictOffset 		= footer.getLong();
+			if(footer.getInt()!=MAGIC)
+				throw new IOException("Not a full text segment "+aFile.getName());
+			if(lDocTableOffset<0 || lDocTableOffset>=lSize || lDictOffset<0 || lDictOffset>=lSize)
+				throw new IOException("Corrupted full text segment "+aFile.getName());
+
+			DataInputStream in = openStream(0);
+			if(in.readInt()!=MAGIC || in.readInt()!=FORMAT_VERSION)
+				throw new IOException("Unsupported full text segment "+aFile.getName());
+			this.gen = in.readInt();
+			this.replaced_gens = new int[checkCount(in.readInt(), lSize)];
+			for(int i=0; i<replaced_gens.length; i++)
+				replaced_gens[i] = in.readInt();
+
+			in = openStream(lDocTableOffset);
+			int iDocs = checkCount(in.readInt(), lSize);
+			this.doc_ids 		= new String[iDocs];
+			this.doc_versions 	= new long[iDocs];
+			this.item_offsets 	= new long[iDocs];
+			this.item_counts 	= new int[iDocs];
+			for(int i=0; i<iDocs; i++)
+			{
+				doc_ids[i] 		= in.readUTF();
+				doc_versions[i] = in.readLong();
+				item_offsets[i] = in.readLong();
+				item_counts[i] 	= in.readInt();
+			}
+
+			in = openStream(lDictOffset);
+			int iTerms = checkCount(in.readInt(), lSize);
+			this.terms 				= new String[iTerms];
+			this.posting_offsets 	= new long[iTerms];
+			this.posting_lengths 	= new int[iTerms];
+			for(int i=0; i<iTerms; i++)
+			{
+				terms[i] 			= in.readUTF();
+				posting_offsets[i] 	= in.readLong();
+				posting_lengths[i] 	= in.readInt();
+			}
+		}
+		catch(IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+		catch(RuntimeException e)
+		{
+			// e.g. negative array size read from a corrupted table
+			channel.close();
+			throw new IOException("Corrupted full text segment "+aFile.getName(), e);
+		}
+	}
+
+	/**
+	 * A table can not have more entries than the bytes of the file
+	 */
+	private int checkCount(int aCount, long aFileSize) throws IOException
+	{
+		if(aCount<0 || aCount>aFileSize)
+			throw new IOException("Corrupted full text segment "+segment_file.getName());
+		return aCount;
+	}
+
+	static FullTextSegment open(File aFile) throws IOException
+	{
+		return new FullTextSegment(aFile);
+	}
+
+	File getFile()
+	{
+		return this.segment_file;
+	}
+
+	int getGen()
+	{
+		return this.gen;
+	}
+
+	int[] getReplacedGens()
+	{
+		return this.replaced_gens;
+	}
+
+	int getDocCount()
+	{
+		return this.doc_ids.length;
+	}
+
+	String getDocId(int aDoc)
+	{
+		return this.doc_ids[aDoc];
+	}
+
+	long getDocVersion(int aDoc)
+	{
+		return this.doc_versions[aDoc];
+	}
+
+	int getTermCount()
+	{
+		return this.terms.length;
+	}
+
+	/**
+	 * (doc, item, position) triples of the term, null if the term is not in this segment
+	 */
+	int[] readPostings(String aTerm) throws IOException
+	{
+		int iTerm = Arrays.binarySearch(terms, aTerm);
+		return iTerm<0 ? null : readPostings(iTerm);
+	}
+
+	private int[] readPostings(int aTerm) throws IOException
+	{
+		ByteBuffer buf = readBytes(posting_offsets[aTerm], posting_lengths[aTerm]);
+		int iCount = readVarInt(buf);
+		int[] postings = new int[iCount*3];
+		int iDoc = 0, iItem = 0, iPos = 0;
+		for(int i=0; i<iCount; i++)
+		{
+			int iDocDelta = readVarInt(buf);
+			if(iDocDelta>0 || i==0)
+			{
+				iDoc += iDocDelta;
+				iItem = readVarInt(buf);
+				iPos = readVarInt(buf);
+			}
+			else
+			{
+				int iItemDelta = readVarInt(buf);
+				iItem += iItemDelta;
+				iPos = (iItemDelta>0) ? readVarInt(buf) : iPos + readVarInt(buf);
+			}
+			postings[i*3] 	= iDoc;
+			postings[i*3+1] = iItem;
+			postings[i*3+2] = iPos;
+		}
+		return postings;
+	}
+
+	/**
+	 * Item of a hit, for ContentUtil.highlightItems()
+	 */
+	ContentItem readItem(int aDoc, int aItem, String aData) throws IOException
+	{
+		ByteBuffer buf = readBytes(item_offsets[aDoc] + (long) aItem*ITEM_BYTES, ITEM_BYTES);
+		int iPageNo 	= buf.getInt();
+		int iLineSeq 	= buf.getInt();
+		ContentItem item = new ContentItem(Type.TEXT, aData, iPageNo,
+				buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+		item.setPg_line_seq(iLineSeq);
+		return item;
+	}
+
+	DocItems readDocItems(int aDoc) throws IOException
+	{
+		DocItems docItems = new DocItems(doc_ids[aDoc], doc_versions[aDoc]);
+		ByteBuffer buf = readBytes(item_offsets[aDoc], item_counts[aDoc]*ITEM_BYTES);
+		for(int i=0; i<item_counts[aDoc]; i++)
+		{
+			docItems.addItem(buf.getInt(), buf.getInt(),
+					buf.getFloat(), buf.getFloat(), buf.getFloat(), buf.getFloat());
+		}
+		return docItems;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.channel.close();
+	}
+
+	private ByteBuffer readBytes(long aOffset, int aLength) throws IOException
+	{
+		ByteBuffer buf = ByteBuffer.allocate(aLength);
+		while(buf.hasRemaining())
+		{
+			if(channel.read(buf, aOffset+buf.position())<0)
+				throw new EOFException(segment_file.getName());
+		}
+		buf.flip();
+		return buf;
+	}
+
+	// only used while opening, before the segment is shared
+	private DataInputStream openStream(long aOffset) throws IOException
+	{
+		channel.position(aOffset);
+		return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+	}
+
+	private static int readVarInt(ByteBuffer aBuf)
+	{
+		int iValue = 0;
+		int iShift = 0;
+		byte b;
+		do {
+			b = aBuf.get();
+			iValue |= (b & 0x7F) << iShift;
+			iShift += 7;
+		} while(b<0);
+		return iValue;
+	}
+
+	//////////////////
+
+	/**
+	 * Merges the documents of aSources into aFile, dropping the documents
+	 * superseded by a newer version (see aLatestVersions).
+	 */
+	static void writeMerged(List<FullTextSegment> aSources, File aFile, int aGen,
+			Map<String, Long> aLatestVersions) throws IOException
+	{
+		int[] replacedGens = new int[aSources.size()];
+		int[][] docMaps = new int[aSources.size()][];
+		int iDocs = 0;
+		for(int s=0; s<aSources.size(); s++)
+		{
+			FullTextSegment src = aSources.get(s);
+			replacedGens[s] = src.gen;
+			docMaps[s] = new int[src.getDocCount()];
+			for(int d=0; d<src.getDocCount(); d++)
+			{
+				Long lLatest = aLatestVersions.get(src.doc_ids[d]);
+				boolean isLatest = lLatest==null || lLatest.longValue()==src.doc_versions[d];
+				docMaps[s][d] = isLatest ? iDocs++ : -1;
+			}
+		}
+
+		try(Writer writer = new Writer(aFile, aGen, replacedGens))
+		{
+			// k-way merge of the sorted term dictionaries, postings of the same term are
+			// concatenated in source order so that the new doc ordinals stay ascending
+			PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> {
+				int iCmp = aSources.get(a[0]).terms[a[1]].compareTo(aSources.get(b[0]).terms[b[1]]);
+				return iCmp!=0 ? iCmp : Integer.compare(a[0], b[0]);
+			});
+			for(int s=0; s<aSources.size(); s++)
+			{
+				if(aSources.get(s).getTermCount()>0)
+					queue.add(new int[] {s, 0});
+			}
+
+			int[] merged = new int[3*1024];
+			while(!queue.isEmpty())
+			{
+				String sTerm = aSources.get(queue.peek()[0]).terms[queue.peek()[1]];
+				int iCount = 0;
+				while(!queue.isEmpty() && aSources.get(queue.peek()[0]).terms[queue.peek()[1]].equals(sTerm))
+				{
+					int[] cursor = queue.poll();
+					FullTextSegment src = aSources.get(cursor[0]);
+					int[] postings = src.readPostings(cursor[1]);
+					for(int i=0; i<postings.length; i+=3)
+					{
+						int iDoc = docMaps[cursor[0]][postings[i]];
+						if(iDoc<0)
+							continue;
+						if((iCount+1)*3>merged.length)
+							merged = Arrays.copyOf(merged, merged.length*2);
+						merged[iCount*3] 	= iDoc;
+						merged[iCount*3+1] 	= postings[i+1];
+						merged[iCount*3+2] 	= postings[i+2];
+						iCount++;
+					}
+					if(++cursor[1]<src.getTermCount())
+						queue.add(cursor);
+				}
+				if(iCount>0)
+					writer.addTerm(sTerm, merged, iCount);
+			}
+
+			for(int s=0; s<aSources.size(); s++)
+			{
+				FullTextSegment src = aSources.get(s);
+				for(int d=0; d<src.getDocCount(); d++)
+				{
+					if(docMaps[s][d]>=0)
+						writer.addDoc(src.readDocItems(d));
+				}
+			}
+			writer.finish();
+		}
+	}
+
+	/**
+	 * Terms are added first in sorted order, then the documents in the order of their ordinals
+	 */
+	static class Writer implements Closeable
+	{
+		private final CountingOutputStream counter;
+		private final DataOutputStream out;
+		private final List<String> listTerms 		= new ArrayList<>();
+		private final List<long[]> listTermOffsets 	= new ArrayList<>();
+		private final List<DocItems> listDocs 		= new ArrayList<>();
+		private final List<Long> listItemOffsets 	= new ArrayList<>();
+		private byte[] varint_buffer = new byte[1024];
+
+		Writer(File aFile, int aGen, int[] aReplacedGens) throws IOException
+		{
+			this.counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(aFile), 64*1024));
+			this.out = new DataOutputStream(counter);
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(aGen);
+			out.writeInt(aReplacedGens.length);
+			for(int iGen : aReplacedGens)
+				out.writeInt(iGen);
+		}
+
+		void addTerm(String aTerm, int[] aPostings, int aCount) throws IOException
+		{
+			long lOffset = counter.count;
+			int iLen = 0;
+			iLen = putVarInt(iLen, aCount);
+			int iPrevDoc = 0, iPrevItem = 0, iPrevPos = 0;
+			for(int i=0; i<aCount; i++)
+			{
+				int iDoc = aPostings[i*3], iItem = aPostings[i*3+1], iPos = aPostings[i*3+2];
+				if(i==0 || iDoc!=iPrevDoc)
+				{
+					iLen = putVarInt(iLen, iDoc-iPrevDoc);
+					iLen = putVarInt(iLen, iItem);
+					iLen = putVarInt(iLen, iPos);
+				}
+				else
+				{
+					iLen = putVarInt(iLen, 0);
+					iLen = putVarInt(iLen, iItem-iPrevItem);
+					iLen = putVarInt(iLen, (iItem!=iPrevItem) ? iPos : iPos-iPrevPos);
+				}
+				iPrevDoc = iDoc;
+				iPrevItem = iItem;
+				iPrevPos = iPos;
+			}
+			out.write(varint_buffer, 0, iLen);
+			listTerms.add(aTerm);
+			listTermOffsets.add(new long[] {lOffset, iLen});
+		}
+
+		void addDoc(DocItems aDocItems) throws IOException
+		{
+			listItemOffsets.add(counter.count);
+			for(int i=0; i<aDocItems.item_count; i++)
+			{
+				out.writeInt(aDocItems.page_nos[i]);
+				out.writeInt(aDocItems.line_seqs[i]);
+				for(int k=0; k<4; k++)
+					out.writeFloat(aDocItems.boxes[i*4+k]);
+			}
+			// items are not needed anymore
+			DocItems docHeader = new DocItems(aDocItems.doc_id, aDocItems.version);
+			docHeader.item_count = aDocItems.item_count;
+			listDocs.add(docHeader);
+		}
+
+		void finish() throws IOException
+		{
+			long lDocTableOffset = counter.count;
+			out.writeInt(listDocs.size());
+			for(int i=0; i<listDocs.size(); i++)
+			{
+				DocItems doc = listDocs.get(i);
+				out.writeUTF(doc.doc_id);
+				out.writeLong(doc.version);
+				out.writeLong(listItemOffsets.get(i));
+				out.writeInt(doc.item_count);
+			}
+
+			long lDictOffset = counter.count;
+			out.writeInt(listTerms.size());
+			for(int i=0; i<listTerms.size(); i++)
+			{
+				out.writeUTF(listTerms.get(i));
+				out.writeLong(listTermOffsets.get(i)[0]);
+				out.writeInt((int) listTermOffsets.get(i)[1]);
+			}
+
+			out.writeLong(lDocTableOffset);
+			out.writeLong(lDictOffset);
+			out.writeInt(MAGIC);
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			out.close();
+		}
+
+		private int putVarInt(int aLen, int aValue)
+		{
+			if(aLen+5>varint_buffer.length)
+				varint_buffer = Arrays.copyOf(varint_buffer, varint_buffer.length*2);
+			while((aValue & ~0x7F)!=0)
+			{
+				varint_buffer[aLen++] = (byte)((aValue & 0x7F) | 0x80);
+				aValue >>>= 7;
+			}
+			varint_buffer[aLen++] = (byte) aValue;
+			return aLen;
+		}
+	}
+
+	// file offset of the bytes written so far, DataOutputStream.size() stops at 2GB
+	private static class CountingOutputStream extends FilterOutputStream
+	{
+		private long count = 0;
+
+		CountingOutputStream(OutputStream aOut)
+		{
+			super(aOut);
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
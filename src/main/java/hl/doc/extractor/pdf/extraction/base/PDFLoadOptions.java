@@ -0,0 +1,148 @@
+package hl.doc.extractor.pdf.extraction.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * I/O strategy used to load the pdf document.
+ * <br>
+ * Default is the same as Loader.loadPDF(File), buffered file read with in-memory stream cache.
+ */
+public class PDFLoadOptions {
+
+	public enum FILE_READ
+	{
+		BUFFERED_FILE,	// RandomAccessReadBufferedFile
+		MEMORY_MAPPED,	// RandomAccessReadMemoryMappedFile, file is mapped instead of read into heap
+		IN_MEMORY		// whole file is read into a byte[] upfront
+	}
+
+	private FILE_READ file_read 		= FILE_READ.BUFFERED_FILE;
+	private long max_main_memory_bytes 	= -1; // -1 : no limit
+	private File temp_dir 				= null;
+	private ExtractionCache cache 		= null;
+
+	public PDFLoadOptions setFileRead(FILE_READ aFileRead)
+	{
+		this.file_read = (aFileRead==null) ? FILE_READ.BUFFERED_FILE : aFileRead;
+		return this;
+	}
+
+	public FILE_READ getFileRead()
+	{
+		return this.file_read;
+	}
+
+	/**
+	 * Cap the heap used to cache the document streams, the rest spills into a temp file.
+	 * 0 for temp file only, -1 for no limit.
+	 */
+	public PDFLoadOptions setMaxMainMemoryBytes(long aMaxBytes)
+	{
+		this.max_main_memory_bytes = aMaxBytes;
+		return this;
+	}
+
+	public long getMaxMainMemoryBytes()
+	{
+		return this.max_main_memory_bytes;
+	}
+
+	public PDFLoadOptions setTempDir(File aTempDir)
+	{
+		this.temp_dir = aTempDir;
+		return this;
+	}
+
+	public File getTempDir()
+	{
+		return this.temp_dir;
+	}
+
+	/**
+	 * Extraction results are cached by pdf content and extraction options,
+	 * the document is only parsed when the cache does not have the requested pages.
+	 */
+	public PDFLoadOptions setExtractionCache(ExtractionCache aCache)
+	{
+		this.cache = aCache;
+		return this;
+	}
+
+	public ExtractionCache getExtractionCache()
+	{
+		return this.cache;
+	}
+
+	protected StreamCacheCreateFunction getStreamCache()
+	{
+		MemoryUsageSetting memSetting = null;
+		if(this.max_main_memory_bytes==0)
+		{
+			memSetting = MemoryUsageSetting.setupTempFileOnly();
+		}
+		else if(this.max_main_memory_bytes>0)
+		{
+			memSetting = MemoryUsageSetting.setupMixed(this.max_main_memory_bytes);
+		}
+
+		if(memSetting==null)
+			return IOUtils.createMemoryOnlyStreamCache();
+
+		if(this.temp_dir!=null)
+			memSetting.setTempDir(this.temp_dir);
+
+		return memSetting.streamCache;
+	}
+
+	//////////////////
+
+	public PDDocument loadPDF(File aPDFFile) throws IOException
+	{
+		RandomAccessRead pdfSource = null;
+		switch(this.file_read)
+		{
+			case MEMORY_MAPPED 	-> pdfSource = new RandomAccessReadMemoryMappedFile(aPDFFile);
+			case IN_MEMORY 		-> pdfSource = new RandomAccessReadBuffer(Files.readAllBytes(aPDFFile.toPath()));
+			default 			-> pdfSource = new RandomAccessReadBufferedFile(aPDFFile);
+		}
+		return loadPDF(pdfSource);
+	}
+
+	public PDDocument loadPDF(byte[] aPDFBytes) throws IOException
+	{
+		return loadPDF(new RandomAccessReadBuffer(aPDFBytes));
+	}
+
+	public PDDocument loadPDF(ByteBuffer aPDFBuffer) throws IOException
+	{
+		// duplicate so that the caller's buffer position is untouched
+		return loadPDF(new RandomAccessReadBuffer(aPDFBuffer.duplicate()));
+	}
+
+	private PDDocument loadPDF(RandomAccessRead aPDFSource) throws IOException
+	{
+		try {
+			// PDDocument.close() will close the source
+			return Loader.loadPDF(aPDFSource, getStreamCache());
+		}
+		catch(IOException e)
+		{
+			aPDFSource.close();
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package hl.doc.extractor.pdf.extraction.base;
+
+import java.io.IOException;
+import java.util.List;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+
+/**
+ * Receives the sorted and sequence-numbered items of each page from
+ * {@link AbstractExtractor#extractStream(int, int, PageConsumer)}, in page order.
+ * <br>
+ * Pages are delivered on the calling thread, extraction of further pages is
+ * held back until this returns.
+ */
+@FunctionalInterface
+public interface PageConsumer {
+
+	/**
+	 * @return false to stop the extraction of remaining pages
+	 */
+	public boolean consumePage(int aPageNo, List<ContentItem> aPageItems) throws IOException;
+
+}
@@ -33,7 +33,7 @@ public class TestSearchItems {
 	        if(aPageNo>0)
 	        	data = pdfExtract.extractPage(aPageNo);
 	        else
-	        	data = pdfExtract.extractAll();
+	        	data = pdfExtract.extractMatchingPages(aSearchTextList, 0); // only pages with a match
 	        
 	        System.out.print("    - Searching "+data.getContentItemList().size()+" items ... ");
 	        Map<Integer, List<ContentItem>> mapMatchedItems = ContentUtil.searchItems(data, aSearchTextList);
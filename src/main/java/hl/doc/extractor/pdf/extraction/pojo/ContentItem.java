@@ -71,6 +71,16 @@ public class ContentItem {
 	{
 		this.layout_areas.clear();
 	}
+	
+	public List<String> getLayoutAreas()
+	{
+		List<String> listAreas = new ArrayList<String>();
+		for(String sArea : this.layout_areas)
+		{
+			listAreas.add(sArea.substring(1, sArea.length()-1));
+		}
+		return listAreas;
+	}
 	//
 	//
 	public Type getType() {
@@ -8,6 +8,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.imageio.ImageIO;
 
 import org.json.JSONObject;
@@ -15,13 +17,17 @@ import org.json.JSONObject;
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
 import hl.doc.extractor.pdf.extraction.util.ContentUtil;
 import hl.doc.extractor.pdf.extraction.util.DataUtil;
+import hl.doc.extractor.pdf.extraction.util.base.ContentSearchIndex;
 
 public class ExtractedData {
 
 	private Map<Integer, List<ContentItem>> page_content_list = new HashMap<>();
 	private List<ContentItem> full_content_list 			  = null;
+	private ContentSearchIndex search_index 				  = null;
 	
 	private MetaData pdf_meta 	= null;
+	private ExtractionMetrics extraction_metrics = null;
+	private Set<Integer> timed_out_pages = new TreeSet<>();
 	private int min_pageno 		= Integer.MAX_VALUE;
 	private int max_pageno 		= 0;
 	//
@@ -36,6 +42,37 @@ public class ExtractedData {
 		return this.pdf_meta;
 	}
 	
+	/**
+	 * Per-page stage timings & content counts, null unless the extractor collects metrics
+	 */
+	public ExtractionMetrics getExtractionMetrics()
+	{
+		return this.extraction_metrics;
+	}
+	
+	public void setExtractionMetrics(ExtractionMetrics aMetrics)
+	{
+		this.extraction_metrics = aMetrics;
+	}
+	
+	/**
+	 * Pages cut short by the extractor's time budget, they only hold the content extracted in time
+	 */
+	public Set<Integer> getTimedOutPages()
+	{
+		return this.timed_out_pages;
+	}
+	
+	public boolean isPageTimedOut(int aPageNo)
+	{
+		return this.timed_out_pages.contains(aPageNo);
+	}
+	
+	public void setTimedOutPages(Set<Integer> aPageNos)
+	{
+		this.timed_out_pages = (aPageNos==null) ? new TreeSet<>() : aPageNos;
+	}
+	
 	public int getStartPageNo()
 	{
 		return this.min_pageno;
@@ -57,6 +94,7 @@ public class ExtractedData {
 	}
 	public void clearDataCache()
 	{
+		search_index = null;
 		
 		if(page_content_list!=null)
 			page_content_list.clear();
@@ -66,7 +104,7 @@ public class ExtractedData {
 	}
 	
 	
-	private String genImageFileName(ContentItem aImageItem, int aImageCount)
+	private static String genImageFileName(ContentItem aImageItem, int aImageCount)
 	{
 		return String.format("image_p%02d-%d_%d-%d_%dx%d.%s",
 						(int)aImageItem.getPage_no(), 
@@ -76,6 +114,29 @@ public class ExtractedData {
 						aImageItem.getContentFormat());
 	}
 	
+	/**
+	 * Replace the embedded image data with a markdown link to the image file name
+	 */
+	public static void setImageItemFileName(ContentItem aImageItem, int aImageCount)
+	{
+		String sBase64Img = ContentUtil.getImageBase64(aImageItem);
+		if(sBase64Img!=null)
+		{
+			//
+			String sImgFileName = aImageItem.getTagName();
+			
+			if(sImgFileName==null || sImgFileName.trim().length()==0 
+					|| sImgFileName.equalsIgnoreCase(ContentUtil.TAGNAME_EMBEDED_BASE64))
+			{	
+				sImgFileName = genImageFileName(aImageItem, aImageCount);
+				aImageItem.setTagName(sImgFileName);
+			}
+			//
+			String sImgContent = "![image "+aImageCount+"]("+sImgFileName+")";
+			aImageItem.setData(sImgContent);
+		}
+	}
+	
 	public void setContentItemList(List<ContentItem> aContentItemList)
 	{
 		if(aContentItemList==null)
@@ -90,23 +151,7 @@ public class ExtractedData {
 			if(it.getType()==Type.IMAGE)
 			{
 				iImgCount++;
-				//
-				String sBase64Img = ContentUtil.getImageBase64(it);
-				if(sBase64Img!=null)
-				{
-					//
-					String sImgFileName = it.getTagName();
-					
-					if(sImgFileName==null || sImgFileName.trim().length()==0 
-							|| sImgFileName.equalsIgnoreCase(ContentUtil.TAGNAME_EMBEDED_BASE64))
-					{	
-						sImgFileName = genImageFileName(it, iImgCount);
-						it.setTagName(sImgFileName);
-					}
-					//
-					String sImgContent = "![image "+iImgCount+"]("+sImgFileName+")";
-					it.setData(sImgContent);
-				}
+				setImageItemFileName(it, iImgCount);
 			}
 			
 			int iPageNo = it.getPage_no();
@@ -139,6 +184,19 @@ public class ExtractedData {
 		return page_content_list.get(aPageNo);
 	}
 	
+	/**
+	 * Built on first use over getContentItemList(), reset when the content items are replaced
+	 */
+	public synchronized ContentSearchIndex getSearchIndex()
+	{
+		if(this.search_index==null)
+		{
+			List<ContentItem> listItems = getContentItemList();
+			this.search_index = new ContentSearchIndex(listItems!=null ? listItems : new ArrayList<>());
+		}
+		return this.search_index;
+	}
+	
 	public String toPlainTextFormat(boolean isShowPageNo)
 	{
 		return toPlainTextFormat(isShowPageNo, 3);
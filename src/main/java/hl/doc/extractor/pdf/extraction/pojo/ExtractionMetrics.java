@@ -0,0 +1,182 @@
+package hl.doc.extractor.pdf.extraction.pojo;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.json.JSONObject;
+
+/**
+ * Per-page wall time of each extraction stage and counts of the extracted content.
+ * <br>
+ * TEXT, IMAGE and VECTOR are measured within the single pass of the page content stream,
+ * so they are part of CONTENT_STREAM. Stages not bound to a page (e.g. sorting the whole
+ * document) are recorded under page no 0.
+ */
+public class ExtractionMetrics {
+
+	public enum Stage
+	{
+		TOTAL,
+		LAYOUT_DETECTION,
+		CONTENT_STREAM,
+		TEXT,
+		IMAGE,
+		VECTOR,
+		GROUPING,
+		SORTING
+	}
+
+	public enum Counter
+	{
+		GLYPHS,
+		TEXT_LINES,
+		IMAGES_DECODED,
+		IMAGES_SKIPPED,
+		IMAGES_REUSED,		// placements served from the document image cache
+		VECTOR_PATHS,
+		VECTOR_SEGMENTS,
+		VECTOR_SHAPES,		// after stitching
+		VECTOR_AS_IMAGE,	// shapes with too many segments, rendered as image
+		CACHE_HITS,
+		PAGES_TIMED_OUT
+	}
+
+	public static class PageMetrics
+	{
+		private final int page_no;
+		private final long[] stage_nanos 	= new long[Stage.values().length];
+		private final long[] counters 		= new long[Counter.values().length];
+
+		public PageMetrics(int aPageNo)
+		{
+			this.page_no = aPageNo;
+		}
+
+		public int getPageNo()
+		{
+			return this.page_no;
+		}
+
+		public void addElapsedNanos(Stage aStage, long aNanos)
+		{
+			stage_nanos[aStage.ordinal()] += aNanos;
+		}
+
+		public long getElapsedNanos(Stage aStage)
+		{
+			return stage_nanos[aStage.ordinal()];
+		}
+
+		public double getElapsedMs(Stage aStage)
+		{
+			return stage_nanos[aStage.ordinal()] / 1_000_000d;
+		}
+
+		public void increment(Counter aCounter, long aCount)
+		{
+			counters[aCounter.ordinal()] += aCount;
+		}
+
+		public long getCount(Counter aCounter)
+		{
+			return counters[aCounter.ordinal()];
+		}
+
+		protected void add(PageMetrics aMetrics)
+		{
+			for(int i=0; i<stage_nanos.length; i++)
+				stage_nanos[i] += aMetrics.stage_nanos[i];
+			for(int i=0; i<counters.length; i++)
+				counters[i] += aMetrics.counters[i];
+		}
+
+		public JSONObject toJson()
+		{
+			JSONObject jsonStages = new JSONObject();
+			for(Stage s : Stage.values())
+			{
+				if(getElapsedNanos(s)>0)
+					jsonStages.put(s.name().toLowerCase()+"_ms", Math.round(getElapsedMs(s)*1000)/1000d);
+			}
+
+			JSONObject jsonCounters = new JSONObject();
+			for(Counter c : Counter.values())
+			{
+				if(getCount(c)>0)
+					jsonCounters.put(c.name().toLowerCase(), getCount(c));
+			}
+
+			JSONObject json = new JSONObject();
+			json.put("page_no", this.page_no);
+			json.put("stages", jsonStages);
+			json.put("counters", jsonCounters);
+			return json;
+		}
+	}
+
+	//
+	// pages may be extracted concurrently, a page is only updated by its own worker
+	private final Map<Integer, PageMetrics> mapPageMetrics = new ConcurrentSkipListMap<>();
+
+	public PageMetrics getPageMetrics(int aPageNo)
+	{
+		return mapPageMetrics.computeIfAbsent(aPageNo, k -> new PageMetrics(aPageNo));
+	}
+
+	public Collection<PageMetrics> getAllPageMetrics()
+	{
+		return mapPageMetrics.values();
+	}
+
+	/**
+	 * Document-level stages, e.g. sorting of all pages
+	 */
+	public PageMetrics getDocumentMetrics()
+	{
+		return getPageMetrics(0);
+	}
+
+	/**
+	 * Sum of all pages and the document-level stages
+	 */
+	public PageMetrics getTotal()
+	{
+		PageMetrics total = new PageMetrics(0);
+		for(PageMetrics m : mapPageMetrics.values())
+		{
+			total.add(m);
+		}
+		return total;
+	}
+
+	public JSONObject toJson()
+	{
+		JSONObject json = new JSONObject();
+		json.put("total", getTotal().toJson());
+		for(PageMetrics m : mapPageMetrics.values())
+		{
+			if(m.getPageNo()>0)
+				json.append("pages", m.toJson());
+		}
+		return json;
+	}
+
+	@Override
+	public String toString()
+	{
+		PageMetrics total = getTotal();
+		StringBuilder sb = new StringBuilder();
+		for(Stage s : Stage.values())
+		{
+			if(total.getElapsedNanos(s)>0)
+				sb.append(s.name().toLowerCase()).append("=").append(String.format("%.1f", total.getElapsedMs(s))).append("ms ");
+		}
+		for(Counter c : Counter.values())
+		{
+			if(total.getCount(c)>0)
+				sb.append(c.name().toLowerCase()).append("=").append(total.getCount(c)).append(" ");
+		}
+		return sb.toString().trim();
+	}
+}
@@ -0,0 +1,142 @@
+package hl.doc.extractor.pdf.extraction.pojo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ExtractedData that only extracts a page when it is first accessed,
+ * optionally prefetching the next pages in the background.
+ * <br>
+ * Pages are extracted one at a time on a single background thread, as the
+ * extractor's PDDocument is not thread-safe. doc_seq is only assigned once
+ * the full content list is requested.
+ */
+public class LazyExtractedData extends ExtractedData {
+
+	@FunctionalInterface
+	public interface PageLoader {
+		public List<ContentItem> loadPage(int aPageNo) throws IOException;
+	}
+
+	private final Map<Integer, Future<List<ContentItem>>> mapPageFutures = new ConcurrentHashMap<>();
+
+	private PageLoader page_loader 	= null;
+	private ExecutorService executor = null;
+	private int start_pageno 		= 1;
+	private int end_pageno 			= 0;
+	private int prefetch_pages 		= 0;
+	private volatile boolean is_all_loaded = false;
+
+	public LazyExtractedData(MetaData aPDFMeta, int aStartPageNo, int aEndPageNo,
+			int aPrefetchPages, PageLoader aPageLoader)
+	{
+		super(aPDFMeta);
+		this.start_pageno 	= aStartPageNo;
+		this.end_pageno 	= aEndPageNo;
+		this.prefetch_pages = Math.max(0, aPrefetchPages);
+		this.page_loader 	= aPageLoader;
+		this.executor 		= Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "LazyExtractedData-"+aPDFMeta.getSourceFileName());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@Override
+	public int getStartPageNo()
+	{
+		return this.start_pageno;
+	}
+
+	@Override
+	public int getEndPageNo()
+	{
+		return this.end_pageno;
+	}
+
+	public boolean isPageLoaded(int aPageNo)
+	{
+		Future<List<ContentItem>> f = mapPageFutures.get(aPageNo);
+		return f!=null && f.isDone();
+	}
+
+	private Future<List<ContentItem>> loadPage(int aPageNo)
+	{
+		return mapPageFutures.computeIfAbsent(aPageNo,
+				k -> executor.submit(() -> page_loader.loadPage(aPageNo)));
+	}
+
+	@Override
+	public List<ContentItem> getContentItemListByPageNo(int aPageNo)
+	{
+		if(this.is_all_loaded)
+			return super.getContentItemListByPageNo(aPageNo);
+
+		if(aPageNo<this.start_pageno || aPageNo>this.end_pageno || executor.isShutdown())
+			return null;
+
+		Future<List<ContentItem>> f = loadPage(aPageNo);
+
+		for(int i=1; i<=this.prefetch_pages && aPageNo+i<=this.end_pageno; i++)
+		{
+			loadPage(aPageNo+i);
+		}
+
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized List<ContentItem> getContentItemList()
+	{
+		if(!this.is_all_loaded && !executor.isShutdown())
+		{
+			List<ContentItem> listItems = new ArrayList<>();
+			for(int iPageNo=this.start_pageno; iPageNo<=this.end_pageno; iPageNo++)
+			{
+				List<ContentItem> listPageItems = getContentItemListByPageNo(iPageNo);
+				if(listPageItems!=null)
+					listItems.addAll(listPageItems);
+			}
+
+			int iDocSeq = 1;
+			for(ContentItem it : listItems)
+			{
+				it.setDoc_seq(iDocSeq++);
+			}
+			setContentItemList(listItems);
+			this.is_all_loaded = true;
+			mapPageFutures.clear();
+		}
+		return super.getContentItemList();
+	}
+
+	/**
+	 * Stop the background extraction, pages not yet loaded are no longer available.
+	 */
+	public void close()
+	{
+		executor.shutdownNow();
+	}
+
+	@Override
+	public void clear()
+	{
+		close();
+		mapPageFutures.clear();
+		super.clear();
+	}
+}
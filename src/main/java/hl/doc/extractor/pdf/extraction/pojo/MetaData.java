@@ -8,6 +8,7 @@ import java.util.Properties;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.json.JSONObject;
 
 public class MetaData {
 	//
@@ -39,6 +40,24 @@ public class MetaData {
 	}
 	
 	
+	public MetaData(JSONObject aJsonMeta)
+	{
+		for(String sKey : aJsonMeta.keySet())
+		{
+			prop_meta.setProperty(sKey, aJsonMeta.getString(sKey));
+		}
+	}
+	
+	public JSONObject toJson()
+	{
+		JSONObject jsonMeta = new JSONObject();
+		for(String sKey : prop_meta.stringPropertyNames())
+		{
+			jsonMeta.put(sKey, prop_meta.getProperty(sKey));
+		}
+		return jsonMeta;
+	}
+	
 	public void clear()
 	{
 		prop_meta.clear();
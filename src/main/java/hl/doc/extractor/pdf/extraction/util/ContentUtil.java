@@ -11,15 +11,13 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ToLongFunction;
 import java.util.regex.Pattern;
 
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
 import org.json.JSONObject;
 
 import hl.common.ImgUtil;
@@ -27,6 +25,9 @@ import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
 import hl.doc.extractor.pdf.extraction.pojo.VectorData;
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
 import hl.doc.extractor.pdf.extraction.pojo.ExtractedData;
+import hl.doc.extractor.pdf.extraction.util.base.ContentSortUtil;
+import hl.doc.extractor.pdf.extraction.util.base.MultiTermMatcher;
+import hl.doc.extractor.pdf.extraction.util.base.PageRenderCache;
 
 public class ContentUtil  {
 	
@@ -35,22 +36,29 @@ public class ContentUtil  {
 	
 	public enum SORT 
 	{
-	    BY_PAGE			(Comparator.comparing(ContentItem::getPage_no)),
-	    BY_X    		(Comparator.comparing(ContentItem::getX1)),
-	    BY_Y    		(Comparator.comparing(ContentItem::getY1)),
-	    BY_AREA_SIZE	(Comparator.comparing(ContentItem::getAreaSize)),
-	    BY_GROUP_NO		(Comparator.comparing(ContentItem::getGroup_no)),
-	    BY_EXTRACT_SEQ	(Comparator.comparing(ContentItem::getExtract_seq));
+	    BY_PAGE			(Comparator.comparing(ContentItem::getPage_no), 	it -> it.getPage_no()),
+	    BY_X    		(Comparator.comparing(ContentItem::getX1), 			it -> ContentSortUtil.toSortableLong(it.getX1())),
+	    BY_Y    		(Comparator.comparing(ContentItem::getY1), 			it -> ContentSortUtil.toSortableLong(it.getY1())),
+	    BY_AREA_SIZE	(Comparator.comparing(ContentItem::getAreaSize), 	it -> ContentSortUtil.toSortableLong(it.getAreaSize())),
+	    BY_GROUP_NO		(Comparator.comparing(ContentItem::getGroup_no), 	it -> ContentSortUtil.toSortableLong(it.getGroup_no())),
+	    BY_EXTRACT_SEQ	(Comparator.comparing(ContentItem::getExtract_seq), it -> it.getExtract_seq());
 	
 	    private final Comparator<ContentItem> cmp;
+	    // same order as cmp, compared as signed long
+	    private final ToLongFunction<ContentItem> sortKey;
 
-	    SORT(Comparator<ContentItem> cmp) {
+	    SORT(Comparator<ContentItem> cmp, ToLongFunction<ContentItem> sortKey) {
 	        this.cmp = cmp;
+	        this.sortKey = sortKey;
 	    }
 
 	    public Comparator<ContentItem> comparator() {
 	        return cmp;
 	    }
+	    
+	    public long sortKey(ContentItem aItem) {
+	    	return sortKey.applyAsLong(aItem);
+	    }
 	}
 	
 	
@@ -58,20 +66,7 @@ public class ContentUtil  {
     		List<ContentItem> aListItem, 
     		SORT ... aSortings)
     {
-		if(aSortings!=null && aSortings.length>0)
-		{
-	    	Comparator<ContentItem> cmp = aSortings[0].comparator();
-	    	
-	    	if(aSortings.length>1)
-	    	{
-		    	for (int idx=1; idx<aSortings.length; idx++)
-		    	{
-		    		cmp = cmp.thenComparing(aSortings[idx].comparator());
-		    	}
-	    	}
-			aListItem.sort(cmp);
-		}
-		return aListItem;
+    	return ContentSortUtil.sortContentItems(aListItem, aSortings);
     }
     
     public static int getExtractedTypeCount(final List<ContentItem> aContentList, Type aType)
@@ -166,9 +161,16 @@ public class ContentUtil  {
 	}
 	
 	public static ContentItem imageToContentItem(BufferedImage aImage, String aFormat, int aPageNo, Rectangle2D aImgCoord) throws IOException
+	{
+		return imageToContentItem(ImgUtil.imageToBase64(aImage, aFormat), aFormat, aPageNo, aImgCoord);
+	}
+	
+	/**
+	 * Image already encoded, e.g. shared by the placements of the same image
+	 */
+	public static ContentItem imageToContentItem(String sImgBase64, String aFormat, int aPageNo, Rectangle2D aImgCoord)
 	{
 		ContentItem item = null;
-		String sImgBase64 = ImgUtil.imageToBase64(aImage, aFormat);
         
         if(sImgBase64!=null)
         {
@@ -318,18 +320,34 @@ public class ContentUtil  {
     
     public static BufferedImage renderPagePreview(final PDDocument aPDDoc, int iPageNo, float aScale) 
     {
-    	PDFRenderer pdfRenderer = new PDFRenderer(aPDDoc);
+    	// nothing cached, only used for this page
+    	return renderPagePreview(new PageRenderCache(aPDDoc, 0), iPageNo, aScale);
+    }
+    
+    /**
+     * Rendered page from the document's render cache, the returned image is shared by the cache
+     */
+    public static BufferedImage renderPagePreview(final PageRenderCache aRenderCache, int iPageNo, float aScale) 
+    {
+    	return renderPagePreview(aRenderCache, iPageNo, aScale, true);
+    }
+    
+    /**
+     * Same as above, isAllowDownscale false for the exact rendering at aScale,
+     * see PageRenderCache.renderPage()
+     */
+    public static BufferedImage renderPagePreview(final PageRenderCache aRenderCache, int iPageNo, float aScale,
+    		boolean isAllowDownscale) 
+    {
     	BufferedImage pageImage = null;
 		try {
 			if(iPageNo<=0)
 				iPageNo = 1;
 			
-			int iPageIndex = iPageNo-1; //index start with 0
-			
 			if(aScale<=0 || aScale>5)
 				aScale = 1;
 			
-			pageImage = pdfRenderer.renderImageWithDPI(iPageIndex, aScale * 72);
+			pageImage = aRenderCache.renderPage(iPageNo, aScale * 72, isAllowDownscale);
 			
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
@@ -340,62 +358,72 @@ public class ContentUtil  {
     
     public static BufferedImage renderPageArea(final PDDocument aPDDoc, int iPageNo, Rectangle2D aROIrect, float aScale) 
     {
-    	BufferedImage pageImage = renderPagePreview(aPDDoc, iPageNo, aScale);
-    	if(pageImage!=null && aROIrect!=null
-    			&& pageImage.getWidth()>aROIrect.getWidth()
-    			&& pageImage.getHeight()>aROIrect.getHeight())
+    	return renderPageArea(new PageRenderCache(aPDDoc, 0), iPageNo, aROIrect, aScale);
+    }
+    
+    /**
+     * Only the area of interest is rendered, the full page is returned when the area is not within the page
+     */
+    public static BufferedImage renderPageArea(final PageRenderCache aRenderCache, int iPageNo, Rectangle2D aROIrect, float aScale) 
+    {
+    	BufferedImage areaImage = null;
+    	if(aROIrect!=null)
     	{
-    		double X2 = aROIrect.getX()+aROIrect.getWidth();
-    		double Y2 = aROIrect.getY()+aROIrect.getHeight();
-    		
-    		if(pageImage.getWidth()>X2 && pageImage.getHeight()>Y2)
-    		{
-    			pageImage = pageImage.getSubimage(
-		    			(int)(aROIrect.getX() * aScale), 
-		    			(int)(aROIrect.getY() * aScale), 
-		    			(int)(aROIrect.getWidth() * aScale), 
-		    			(int)(aROIrect.getHeight() * aScale));
-    		}
+	    	try {
+				if(iPageNo<=0)
+					iPageNo = 1;
+				
+				if(aScale<=0 || aScale>5)
+					aScale = 1;
+				
+				areaImage = aRenderCache.renderPageArea(iPageNo, aROIrect, aScale * 72);
+				
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
     	}
-    	return pageImage;
+    	
+    	if(areaImage==null)
+    	{
+    		// own copy, the cached page is shared
+    		areaImage = renderPagePreview(aRenderCache, iPageNo, aScale);
+    		if(areaImage!=null)
+    			areaImage = copyImage(areaImage);
+    	}
+    	return areaImage;
     }
     
+    public static BufferedImage copyImage(final BufferedImage aImage)
+    {
+    	int iType = aImage.getType()!=BufferedImage.TYPE_CUSTOM ? aImage.getType() : BufferedImage.TYPE_INT_ARGB;
+    	BufferedImage img = new BufferedImage(aImage.getWidth(), aImage.getHeight(), iType);
+    	Graphics2D g2d = img.createGraphics();
+    	try {
+    		g2d.drawImage(aImage, 0, 0, null);
+    	}
+    	finally {
+    		g2d.dispose();
+    	}
+    	return img;
+    }
     
+    
+    /**
+     * Items containing any of the search terms (case-insensitive), by page no.
+     * <br>
+     * The search index of aExtractedData is built on the first search and reused by later ones.
+     */
     public static Map<Integer, List<ContentItem>> searchItems(ExtractedData aExtractedData, List<String> aSearchList)
     {
-    	Map<Integer, List<ContentItem>> mapMatchedItems = new HashMap<>();
-    	
-    	List<String> listLowerCase = new ArrayList<>();
-    	for(String sSearch : aSearchList)
-    	{
-    		listLowerCase.add(sSearch.toLowerCase());
-    	}
-    	
-        for(ContentItem it : aExtractedData.getContentItemList())
-        {
-        	String sData = it.getData()!=null?it.getData().toLowerCase():"";
-        	boolean isFound = false;
-        	for(String sSearch : listLowerCase)
-        	{
-        		if(sData.length()>=sSearch.length() 
-        			&& sData.indexOf(sSearch)>-1)
-        		{
-        			isFound = true;
-        			break;
-        		}
-        	}
-        	if(isFound)
-        	{
-        		List<ContentItem> listMatched = mapMatchedItems.get(it.getPage_no());
-        		if(listMatched==null)
-        		{
-        			listMatched = new ArrayList<>();
-        		}
-        		listMatched.add(it);
-        		mapMatchedItems.put(it.getPage_no(), listMatched);
-        	}
-        }
-        return mapMatchedItems;
+    	return aExtractedData.getSearchIndex().searchItems(aSearchList);
+    }
+    
+    /**
+     * Same terms searched in many documents, see MultiTermMatcher
+     */
+    public static Map<Integer, List<ContentItem>> searchItems(ExtractedData aExtractedData, MultiTermMatcher aMatcher)
+    {
+    	return aExtractedData.getSearchIndex().searchItems(aMatcher);
     }
 
     public static BufferedImage highlightItems(BufferedImage aImage, List<ContentItem> aHighlightItemList)
@@ -1,5 +1,8 @@
 package hl.doc.extractor.pdf.extraction.util;
 
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.json.JSONArray;
@@ -146,6 +149,88 @@ public class DataUtil  {
     	
     	return jsonDoc;
     }
+	/**
+	 * Full content item serialization, used for caching the extracted items
+	 */
+	public static JSONArray toJsonContentItems(final List<ContentItem> aContentItems)
+	{
+		JSONArray jArrItems = new JSONArray();
+		for(ContentItem it : aContentItems)
+		{
+			JSONObject jsonItem = new JSONObject();
+			jsonItem.put("type", it.getType().name());
+			jsonItem.put("format", it.getContentFormat());
+			jsonItem.put("tagname", it.getTagName());
+			jsonItem.put("extract_seq", it.getExtract_seq());
+			jsonItem.put("doc_seq", it.getDoc_seq());
+			jsonItem.put("page_no", it.getPage_no());
+			jsonItem.put("pg_line_seq", it.getPg_line_seq());
+			jsonItem.put("group_no", it.getGroup_no());
+			jsonItem.putOpt("rawdata", it.getRawData());
+			if(it.getData()!=it.getRawData())
+				jsonItem.putOpt("data", it.getData());
+			jsonItem.put("layout_areas", new JSONArray(it.getLayoutAreas()));
+			
+			Rectangle2D rect = it.getRect2D();
+			if(rect!=null)
+			{
+				jsonItem.put("rect", new JSONArray(new double[] {
+						rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight()}));
+				jsonItem.put("rect_int", rect instanceof Rectangle);
+			}
+			jArrItems.put(jsonItem);
+		}
+		return jArrItems;
+	}
+	
+	public static List<ContentItem> fromJsonContentItems(final JSONArray aJsonItems)
+	{
+		List<ContentItem> listItems = new ArrayList<>();
+		for(int i=0; i<aJsonItems.length(); i++)
+		{
+			JSONObject jsonItem = aJsonItems.getJSONObject(i);
+			
+			Rectangle2D rect = null;
+			JSONArray jsonRect = jsonItem.optJSONArray("rect");
+			if(jsonRect!=null)
+			{
+				if(jsonItem.optBoolean("rect_int"))
+				{
+					rect = new Rectangle(jsonRect.getInt(0), jsonRect.getInt(1), jsonRect.getInt(2), jsonRect.getInt(3));
+				}
+				else
+				{
+					rect = new Rectangle2D.Double(jsonRect.getDouble(0), jsonRect.getDouble(1), 
+							jsonRect.getDouble(2), jsonRect.getDouble(3));
+				}
+			}
+			
+			ContentItem it = new ContentItem(
+					Type.valueOf(jsonItem.getString("type")), 
+					jsonItem.optString("rawdata", null), 
+					jsonItem.getInt("page_no"), rect);
+			it.setContentFormat(jsonItem.optString("format", null));
+			it.setTagName(jsonItem.optString("tagname", null));
+			it.setExtract_seq(jsonItem.getInt("extract_seq"));
+			it.setDoc_seq(jsonItem.getInt("doc_seq"));
+			it.setPg_line_seq(jsonItem.getInt("pg_line_seq"));
+			it.setGroup_no(jsonItem.getDouble("group_no"));
+			if(jsonItem.has("data"))
+				it.setData(jsonItem.getString("data"));
+			
+			JSONArray jsonAreas = jsonItem.optJSONArray("layout_areas");
+			if(jsonAreas!=null)
+			{
+				for(int a=0; a<jsonAreas.length(); a++)
+				{
+					it.assocLayoutArea(jsonAreas.getString(a));
+				}
+			}
+			listItems.add(it);
+		}
+		return listItems;
+	}
+	
 	/**
 	public static List<ContentItem> fromJsonFormat(final JSONObject aJsonContentList)
     {
@@ -5,9 +5,14 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.pdfbox.cos.COSObjectKey;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
 import hl.doc.extractor.pdf.extraction.util.base.ImageExtractUtil;
+import hl.doc.extractor.pdf.extraction.util.base.PageExtractOptions;
+import hl.doc.extractor.pdf.extraction.util.base.PageExtractUtil;
+import hl.doc.extractor.pdf.extraction.util.base.PageFingerprintUtil;
 import hl.doc.extractor.pdf.extraction.util.base.TextExtractUtil;
 import hl.doc.extractor.pdf.extraction.util.base.VectorExtractUtil;
 
@@ -24,6 +29,12 @@ public class ExtractionUtil  {
 	{
 		return TextExtractUtil.extractTextContentByAreas(doc, pageIndex, mapAreasOfInterest);
 	}
+	
+	public static Map<Integer, List<ContentItem>> extractTextContentByPages(PDDocument doc, int startPageIndex, int endPageIndex, 
+			Map<String, Rectangle> mapAreasOfInterest) throws IOException 
+	{
+		return TextExtractUtil.extractTextContentByPages(doc, startPageIndex, endPageIndex, mapAreasOfInterest);
+	}
 
 	// ---- IMAGE BOUNDING BOXES (Y-flipped to match BufferedImage coordinates) ----
 	public static List<ContentItem> extractImageContent(PDDocument doc, int pageIndex) throws IOException 
@@ -49,5 +60,36 @@ public class ExtractionUtil  {
     	return VectorExtractUtil.extractVectorContent(doc, pageIndex, isGroupVectors);
 	}
 
+    // ---- TEXT, IMAGE & VECTOR (single content stream pass) -----
+    public static Map<Type, List<ContentItem>> extractPageContent(PDDocument doc, int pageIndex,
+    		Map<String, Rectangle> mapAreasOfInterest,
+    		boolean isExtractText, boolean isExtractImage, boolean isExtractVector,
+    		boolean isResizeImage) throws IOException
+    {
+    	return PageExtractUtil.extractPageContent(doc, pageIndex, mapAreasOfInterest,
+    			isExtractText, isExtractImage, isExtractVector, isResizeImage);
+    }
+
+    public static Map<Type, List<ContentItem>> extractPageContent(PDDocument doc, int pageIndex,
+    		Map<String, Rectangle> mapAreasOfInterest, PageExtractOptions aOptions) throws IOException
+    {
+    	return PageExtractUtil.extractPageContent(doc, pageIndex, mapAreasOfInterest, aOptions);
+    }
+
+    // ---- Page fingerprint (content stream & referenced resources) -----
+    public static String getPageFingerprint(PDDocument doc, int pageIndex) throws IOException
+    {
+    	return PageFingerprintUtil.getPageFingerprint(doc.getPage(pageIndex));
+    }
+
+    /**
+     * Same as above, aStreamDigests is shared by the pages of doc, see PageFingerprintUtil
+     */
+    public static String getPageFingerprint(PDDocument doc, int pageIndex, 
+    		Map<COSObjectKey, String> aStreamDigests) throws IOException
+    {
+    	return PageFingerprintUtil.getPageFingerprint(doc.getPage(pageIndex), aStreamDigests);
+    }
+
     
 }
\ No newline at end of file
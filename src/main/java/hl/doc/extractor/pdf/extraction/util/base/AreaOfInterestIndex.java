@@ -0,0 +1,184 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.Rectangle;
+import java.util.Map;
+
+/**
+ * Uniform grid over the areas of interest of a page, so that the areas containing
+ * a glyph or a text line are looked up in a single cell instead of testing all of them.
+ * <br>
+ * Areas of a cell are kept in the iteration order of the source map, lookups return
+ * the same areas in the same order as looping over the map.
+ */
+public class AreaOfInterestIndex {
+
+	private static final int MAX_GRID_SIZE = 64;
+
+	private final String[] area_names;
+	private final Rectangle[] area_rects;
+
+	private final double min_x, min_y, max_x, max_y;
+	private final double cell_width, cell_height;
+	private final int grid_cols, grid_rows;
+	// area ordinals of each cell, ascending
+	private final int[][] cells;
+
+	public AreaOfInterestIndex(Map<String, Rectangle> aMapAreas)
+	{
+		int iAreas = aMapAreas.size();
+		this.area_names = new String[iAreas];
+		this.area_rects = new Rectangle[iAreas];
+
+		double dMinX = Double.MAX_VALUE, dMinY = Double.MAX_VALUE;
+		double dMaxX = -Double.MAX_VALUE, dMaxY = -Double.MAX_VALUE;
+		int i = 0;
+		for(Map.Entry<String, Rectangle> e : aMapAreas.entrySet())
+		{
+			Rectangle rect = e.getValue();
+			area_names[i] = e.getKey();
+			area_rects[i] = rect;
+			i++;
+
+			if(!isIndexed(rect))
+				continue;
+			dMinX = Math.min(dMinX, rect.getX());
+			dMinY = Math.min(dMinY, rect.getY());
+			dMaxX = Math.max(dMaxX, rect.getX()+rect.getWidth());
+			dMaxY = Math.max(dMaxY, rect.getY()+rect.getHeight());
+		}
+
+		if(dMinX>dMaxX)
+		{
+			// nothing can contain a point
+			this.min_x = this.min_y = this.max_x = this.max_y = 0;
+			this.cell_width = this.cell_height = 1;
+			this.grid_cols = this.grid_rows = 0;
+			this.cells = new int[0][];
+			return;
+		}
+
+		int iGridSize = (int) Math.min(MAX_GRID_SIZE, Math.max(1, Math.ceil(Math.sqrt(iAreas)) * 2));
+		this.min_x 			= dMinX;
+		this.min_y 			= dMinY;
+		this.max_x 			= dMaxX;
+		this.max_y 			= dMaxY;
+		this.grid_cols 		= iGridSize;
+		this.grid_rows 		= iGridSize;
+		this.cell_width 	= (dMaxX - dMinX) / iGridSize;
+		this.cell_height 	= (dMaxY - dMinY) / iGridSize;
+
+		// 1st pass counts the areas of each cell, 2nd pass fills them in area order
+		int[] cellCounts = new int[grid_cols * grid_rows];
+		for(int a=0; a<iAreas; a++)
+		{
+			for(int iCell : toCells(area_rects[a]))
+				cellCounts[iCell]++;
+		}
+
+		this.cells = new int[cellCounts.length][];
+		for(int c=0; c<cellCounts.length; c++)
+		{
+			this.cells[c] = new int[cellCounts[c]];
+			cellCounts[c] = 0;
+		}
+
+		for(int a=0; a<iAreas; a++)
+		{
+			for(int iCell : toCells(area_rects[a]))
+				this.cells[iCell][cellCounts[iCell]++] = a;
+		}
+	}
+
+	/**
+	 * Same as testing Rectangle.contains(x, y) of each area
+	 */
+	public boolean isInAnyArea(double x, double y)
+	{
+		int[] cell = getCell(x, y);
+		if(cell!=null)
+		{
+			for(int a : cell)
+			{
+				if(area_rects[a].contains(x, y))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Ordinals of the areas that fully contain the rectangle, same as testing
+	 * Rectangle.contains(x, y, w, h) of each area, in the order of the source map.
+	 * <br>
+	 * A containing area also contains the top-left corner, so only its cell is checked.
+	 */
+	public int getContainingAreas(double x, double y, double w, double h, int[] aResult)
+	{
+		int iFound = 0;
+		int[] cell = getCell(x, y);
+		if(cell!=null)
+		{
+			for(int a : cell)
+			{
+				if(area_rects[a].contains(x, y, w, h))
+					aResult[iFound++] = a;
+			}
+		}
+		return iFound;
+	}
+
+	public int getAreaCount()
+	{
+		return area_names.length;
+	}
+
+	public String getAreaName(int aOrdinal)
+	{
+		return area_names[aOrdinal];
+	}
+
+	private int[] getCell(double x, double y)
+	{
+		if(grid_cols==0 || x<min_x || y<min_y || x>max_x || y>max_y)
+			return null;
+		return cells[toRow(y)*grid_cols + toCol(x)];
+	}
+
+	private int[] toCells(Rectangle aRect)
+	{
+		if(!isIndexed(aRect))
+			return new int[0];
+
+		int iCol1 = toCol(aRect.getX());
+		int iCol2 = toCol(aRect.getX()+aRect.getWidth());
+		int iRow1 = toRow(aRect.getY());
+		int iRow2 = toRow(aRect.getY()+aRect.getHeight());
+
+		int[] areaCells = new int[(iCol2-iCol1+1) * (iRow2-iRow1+1)];
+		int i = 0;
+		for(int r=iRow1; r<=iRow2; r++)
+		{
+			for(int c=iCol1; c<=iCol2; c++)
+				areaCells[i++] = r*grid_cols + c;
+		}
+		return areaCells;
+	}
+
+	private int toCol(double x)
+	{
+		int iCol = cell_width>0 ? (int)((x - min_x) / cell_width) : 0;
+		return Math.max(0, Math.min(grid_cols-1, iCol));
+	}
+
+	private int toRow(double y)
+	{
+		int iRow = cell_height>0 ? (int)((y - min_y) / cell_height) : 0;
+		return Math.max(0, Math.min(grid_rows-1, iRow));
+	}
+
+	// an empty area does not contain anything
+	private static boolean isIndexed(Rectangle aRect)
+	{
+		return aRect!=null && aRect.getWidth()>0 && aRect.getHeight()>0;
+	}
+}
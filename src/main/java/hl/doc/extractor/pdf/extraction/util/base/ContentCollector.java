@@ -0,0 +1,37 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.geom.Path2D;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.text.TextPosition;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+
+/**
+ * Receives the glyphs, image draws and path paints found by {@link PageContentEngine}
+ * while it walks a page content stream, and turns them into {@link ContentItem}s.
+ */
+public interface ContentCollector {
+
+	default boolean isCollectGlyphs() { return false; }
+
+	default boolean isCollectImages() { return false; }
+
+	default boolean isCollectPaths() { return false; }
+
+	default void startPage(PDPage aPage, int aPageNo) throws IOException {}
+
+	default void processGlyph(TextPosition aText) {}
+
+	default void processImage(PDImage aImage, PDGraphicsState aGraphicsState) throws IOException {}
+
+	default void processPath(Path2D aPath, PDGraphicsState aGraphicsState, boolean isStroked, boolean isFilled) {}
+
+	default void endPage(PDPage aPage) throws IOException {}
+
+	public List<ContentItem> getContentItems();
+}
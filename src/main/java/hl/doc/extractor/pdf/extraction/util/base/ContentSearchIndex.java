@@ -0,0 +1,203 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+
+/**
+ * Search index of the content items of a document, built once and queried many times.
+ * <br>
+ * Substring search scans the lowercased data of each item once with a {@link MultiTermMatcher}
+ * of all the search terms, token search looks up the whole words of the terms in an inverted
+ * index (built on first use). Hits are returned by page no, in the order of the items.
+ */
+public class ContentSearchIndex {
+
+	private final ContentItem[] items;
+	private final String[] lowercase_data;
+
+	// token -> ascending item ordinals
+	private Map<String, int[]> mapTokenItems = null;
+
+	public ContentSearchIndex(List<ContentItem> aContentItems)
+	{
+		this.items = aContentItems.toArray(new ContentItem[aContentItems.size()]);
+		this.lowercase_data = new String[items.length];
+		for(int i=0; i<items.length; i++)
+		{
+			String sData = items[i].getData();
+			lowercase_data[i] = sData!=null ? sData.toLowerCase() : "";
+		}
+	}
+
+	/**
+	 * Items containing any of the search terms (case-insensitive), same as ContentUtil.searchItems()
+	 */
+	public Map<Integer, List<ContentItem>> searchItems(List<String> aSearchList)
+	{
+		List<String> listLowerCase = new ArrayList<>();
+		for(String sSearch : aSearchList)
+		{
+			listLowerCase.add(sSearch.toLowerCase());
+		}
+		return searchItems(new MultiTermMatcher(listLowerCase));
+	}
+
+	/**
+	 * For the same terms searched in many documents, aMatcher holds the lowercased terms
+	 */
+	public Map<Integer, List<ContentItem>> searchItems(MultiTermMatcher aMatcher)
+	{
+		boolean[] isMatched = new boolean[items.length];
+		for(int i=0; i<items.length; i++)
+		{
+			isMatched[i] = aMatcher.isMatch(lowercase_data[i]);
+		}
+		return toPageItems(isMatched);
+	}
+
+	/**
+	 * Items containing all the words of any of the search terms (case-insensitive),
+	 * words being runs of letters and digits. Terms without any word are ignored.
+	 */
+	public Map<Integer, List<ContentItem>> searchTokens(List<String> aSearchList)
+	{
+		Map<String, int[]> mapTokens = getTokenIndex();
+
+		boolean[] isMatched = new boolean[items.length];
+		for(String sSearch : aSearchList)
+		{
+			List<String> listTokens = tokenize(sSearch.toLowerCase());
+			if(listTokens.isEmpty())
+				continue;
+
+			int[] matched = null;
+			for(String sToken : listTokens)
+			{
+				int[] tokenItems = mapTokens.get(sToken);
+				if(tokenItems==null)
+				{
+					matched = null;
+					break;
+				}
+				matched = (matched==null) ? tokenItems : intersect(matched, tokenItems);
+				if(matched.length==0)
+					break;
+			}
+
+			if(matched!=null)
+			{
+				for(int i : matched)
+					isMatched[i] = true;
+			}
+		}
+		return toPageItems(isMatched);
+	}
+
+	public int getItemCount()
+	{
+		return this.items.length;
+	}
+
+	public int getTokenCount()
+	{
+		return getTokenIndex().size();
+	}
+
+	private synchronized Map<String, int[]> getTokenIndex()
+	{
+		if(mapTokenItems==null)
+		{
+			Map<String, int[]> mapTokens = new HashMap<>();
+			// item count of each token at index 0, followed by the ordinals
+			for(int i=0; i<items.length; i++)
+			{
+				for(String sToken : tokenize(lowercase_data[i]))
+				{
+					int[] tokenItems = mapTokens.get(sToken);
+					if(tokenItems==null)
+					{
+						tokenItems = new int[4];
+						mapTokens.put(sToken, tokenItems);
+					}
+					int iCount = tokenItems[0];
+					if(iCount>0 && tokenItems[iCount]==i)
+						continue;
+					if(iCount+1>=tokenItems.length)
+					{
+						tokenItems = Arrays.copyOf(tokenItems, tokenItems.length*2);
+						mapTokens.put(sToken, tokenItems);
+					}
+					tokenItems[++iCount] = i;
+					tokenItems[0] = iCount;
+				}
+			}
+
+			for(Map.Entry<String, int[]> e : mapTokens.entrySet())
+			{
+				int[] tokenItems = e.getValue();
+				e.setValue(Arrays.copyOfRange(tokenItems, 1, tokenItems[0]+1));
+			}
+			mapTokenItems = mapTokens;
+		}
+		return mapTokenItems;
+	}
+
+	private Map<Integer, List<ContentItem>> toPageItems(boolean[] aIsMatched)
+	{
+		Map<Integer, List<ContentItem>> mapMatchedItems = new HashMap<>();
+		for(int i=0; i<items.length; i++)
+		{
+			if(aIsMatched[i])
+				mapMatchedItems.computeIfAbsent(items[i].getPage_no(), k -> new ArrayList<>()).add(items[i]);
+		}
+		return mapMatchedItems;
+	}
+
+	/**
+	 * Words of the text, runs of letters and digits as is (lowercase the text first)
+	 */
+	public static List<String> tokenize(String aText)
+	{
+		List<String> listTokens = new ArrayList<>();
+		int iStart = -1;
+		for(int i=0; i<=aText.length(); i++)
+		{
+			boolean isWordChar = i<aText.length() && Character.isLetterOrDigit(aText.charAt(i));
+			if(isWordChar && iStart<0)
+			{
+				iStart = i;
+			}
+			else if(!isWordChar && iStart>=0)
+			{
+				listTokens.add(aText.substring(iStart, i));
+				iStart = -1;
+			}
+		}
+		return listTokens;
+	}
+
+	private static int[] intersect(int[] aSorted1, int[] aSorted2)
+	{
+		int[] result = new int[Math.min(aSorted1.length, aSorted2.length)];
+		int iCount = 0, i = 0, j = 0;
+		while(i<aSorted1.length && j<aSorted2.length)
+		{
+			if(aSorted1[i]<aSorted2[j])
+				i++;
+			else if(aSorted1[i]>aSorted2[j])
+				j++;
+			else
+			{
+				result[iCount++] = aSorted1[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, iCount);
+	}
+}
@@ -0,0 +1,270 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.util.Arrays;
+import java.util.List;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.util.ContentUtil.SORT;
+
+/**
+ * Stable multi-key sort of content items on primitive keys, same order as chaining
+ * the SORT comparators with thenComparing() but without boxing on every comparison.
+ * <br>
+ * The sort keys of each item are read once. When the sorting starts with BY_PAGE and
+ * the items are already grouped by page, each page is sorted on its own.
+ */
+public class ContentSortUtil {
+
+	// ranges with more items are sorted with Arrays.parallelSort()
+	public static int PARALLEL_SORT_THRESHOLD = 100_000;
+
+	public static List<ContentItem> sortContentItems(List<ContentItem> aListItem, SORT ... aSortings)
+	{
+		if(aSortings==null || aSortings.length==0 || aListItem.size()<2)
+			return aListItem;
+
+		ContentItem[] items = aListItem.toArray(new ContentItem[aListItem.size()]);
+
+		if(aSortings[0]==SORT.BY_PAGE && isGroupedByPage(items))
+		{
+			int iFrom = 0;
+			for(int i=1; i<=items.length; i++)
+			{
+				if(i==items.length || items[i].getPage_no()!=items[iFrom].getPage_no())
+				{
+					sortRange(items, iFrom, i, aSortings, 1);
+					iFrom = i;
+				}
+			}
+		}
+		else
+		{
+			sortRange(items, 0, items.length, aSortings, 0);
+		}
+
+		// sorted in place, same as List.sort()
+		for(int i=0; i<items.length; i++)
+		{
+			aListItem.set(i, items[i]);
+		}
+		return aListItem;
+	}
+
+	/**
+	 * Same order as Double.compare() when compared as signed long
+	 */
+	public static long toSortableLong(double aValue)
+	{
+		long lBits = Double.doubleToLongBits(aValue);
+		return lBits ^ ((lBits >> 63) & Long.MAX_VALUE);
+	}
+
+	private static boolean isGroupedByPage(ContentItem[] aItems)
+	{
+		for(int i=1; i<aItems.length; i++)
+		{
+			if(aItems[i].getPage_no()<aItems[i-1].getPage_no())
+				return false;
+		}
+		return true;
+	}
+
+	private static void sortRange(ContentItem[] aItems, int aFrom, int aTo, SORT[] aSortings, int aFirstSortIdx)
+	{
+		int iSize = aTo - aFrom;
+		int iKeys = aSortings.length - aFirstSortIdx;
+		if(iSize<2 || iKeys<=0)
+			return;
+
+		// keys column by column
+		long[][] keys = new long[iKeys][iSize];
+		for(int k=0; k<iKeys; k++)
+		{
+			SORT sort = aSortings[aFirstSortIdx+k];
+			for(int i=0; i<iSize; i++)
+			{
+				keys[k][i] = sort.sortKey(aItems[aFrom+i]);
+			}
+		}
+
+		int[] order = sortByCompositeKeys(keys, iSize);
+		if(order==null)
+			order = mergeSort(keys, iSize);
+
+		ContentItem[] sorted = new ContentItem[iSize];
+		for(int i=0; i<iSize; i++)
+		{
+			sorted[i] = aItems[aFrom+order[i]];
+		}
+		System.arraycopy(sorted, 0, aItems, aFrom, iSize);
+	}
+
+	/**
+	 * Each key is replaced by its rank among the distinct values of its column, then all ranks
+	 * and the item index are packed into a single long, unique per item so that the sort is stable.
+	 * <br>
+	 * Returns null if they do not fit into 63 bits.
+	 */
+	private static int[] sortByCompositeKeys(long[][] aKeys, int aSize)
+	{
+		int iIndexBits = bitsFor(aSize);
+		int iTotalBits = iIndexBits;
+
+		long[][] distinctKeys = new long[aKeys.length][];
+		int[] rankBits = new int[aKeys.length];
+		for(int k=0; k<aKeys.length; k++)
+		{
+			distinctKeys[k] = distinct(aKeys[k]);
+			rankBits[k] = bitsFor(distinctKeys[k].length);
+			iTotalBits += rankBits[k];
+			if(iTotalBits>63)
+				return null;
+		}
+
+		long[] composite = new long[aSize];
+		for(int k=0; k<aKeys.length; k++)
+		{
+			int[] ranks = toRanks(aKeys[k], distinctKeys[k]);
+			for(int i=0; i<aSize; i++)
+			{
+				composite[i] = (composite[i] << rankBits[k]) | ranks[i];
+			}
+		}
+		for(int i=0; i<aSize; i++)
+		{
+			composite[i] = (composite[i] << iIndexBits) | i;
+		}
+
+		if(aSize>PARALLEL_SORT_THRESHOLD)
+			Arrays.parallelSort(composite);
+		else
+			Arrays.sort(composite);
+
+		long lIndexMask = (1L << iIndexBits) - 1;
+		int[] order = new int[aSize];
+		for(int i=0; i<aSize; i++)
+		{
+			order[i] = (int)(composite[i] & lIndexMask);
+		}
+		return order;
+	}
+
+	private static long[] distinct(long[] aValues)
+	{
+		long[] sorted = aValues.clone();
+		if(sorted.length>PARALLEL_SORT_THRESHOLD)
+			Arrays.parallelSort(sorted);
+		else
+			Arrays.sort(sorted);
+
+		int iDistinct = 0;
+		for(int i=0; i<sorted.length; i++)
+		{
+			if(i==0 || sorted[i]!=sorted[iDistinct-1])
+				sorted[iDistinct++] = sorted[i];
+		}
+		return Arrays.copyOf(sorted, iDistinct);
+	}
+
+	/**
+	 * Rank of each value among the sorted distinct values, looked up in an open addressing
+	 * hash table as a binary search per value is slowed down by cache misses on large pages.
+	 */
+	private static int[] toRanks(long[] aValues, long[] aDistinctValues)
+	{
+		int iCapacity 		= Integer.highestOneBit(Math.max(2, aDistinctValues.length*2-1)) << 1;
+		int iMask 			= iCapacity - 1;
+		long[] tableValues 	= new long[iCapacity];
+		int[] tableRanks 	= new int[iCapacity]; // rank+1, 0 for empty slot
+
+		for(int r=0; r<aDistinctValues.length; r++)
+		{
+			int h = hash(aDistinctValues[r]) & iMask;
+			while(tableRanks[h]!=0)
+				h = (h+1) & iMask;
+			tableValues[h] 	= aDistinctValues[r];
+			tableRanks[h] 	= r+1;
+		}
+
+		int[] ranks = new int[aValues.length];
+		for(int i=0; i<aValues.length; i++)
+		{
+			long lValue = aValues[i];
+			int h = hash(lValue) & iMask;
+			while(tableRanks[h]==0 || tableValues[h]!=lValue)
+				h = (h+1) & iMask;
+			ranks[i] = tableRanks[h]-1;
+		}
+		return ranks;
+	}
+
+	private static int hash(long aValue)
+	{
+		long x = aValue * 0x9E3779B97F4A7C15L;
+		return (int)(x ^ (x >>> 32));
+	}
+
+	// bits to hold 0 .. aCount-1
+	private static int bitsFor(int aCount)
+	{
+		return aCount<=1 ? 0 : 32 - Integer.numberOfLeadingZeros(aCount-1);
+	}
+
+	//// fallback, stable merge sort of the indices
+
+	private static int[] mergeSort(long[][] aKeys, int aSize)
+	{
+		int[] order = new int[aSize];
+		for(int i=0; i<aSize; i++)
+			order[i] = i;
+		mergeSort(order, new int[aSize], 0, aSize, aKeys);
+		return order;
+	}
+
+	private static void mergeSort(int[] aOrder, int[] aTemp, int aFrom, int aTo, long[][] aKeys)
+	{
+		if(aTo-aFrom<=16)
+		{
+			// insertion sort
+			for(int i=aFrom+1; i<aTo; i++)
+			{
+				int iIdx = aOrder[i];
+				int j = i-1;
+				while(j>=aFrom && compare(aKeys, aOrder[j], iIdx)>0)
+				{
+					aOrder[j+1] = aOrder[j];
+					j--;
+				}
+				aOrder[j+1] = iIdx;
+			}
+			return;
+		}
+
+		int iMid = (aFrom + aTo) >>> 1;
+		mergeSort(aOrder, aTemp, aFrom, iMid, aKeys);
+		mergeSort(aOrder, aTemp, iMid, aTo, aKeys);
+		if(compare(aKeys, aOrder[iMid-1], aOrder[iMid])<=0)
+			return;
+
+		System.arraycopy(aOrder, aFrom, aTemp, aFrom, aTo-aFrom);
+		int iLeft = aFrom, iRight = iMid;
+		for(int i=aFrom; i<aTo; i++)
+		{
+			if(iRight>=aTo || (iLeft<iMid && compare(aKeys, aTemp[iLeft], aTemp[iRight])<=0))
+				aOrder[i] = aTemp[iLeft++];
+			else
+				aOrder[i] = aTemp[iRight++];
+		}
+	}
+
+	private static int compare(long[][] aKeys, int aIdx1, int aIdx2)
+	{
+		for(long[] column : aKeys)
+		{
+			int iCmp = Long.compare(column[aIdx1], column[aIdx2]);
+			if(iCmp!=0)
+				return iCmp;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,82 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.pdfbox.text.TextPosition;
+
+/**
+ * Same as PDFBox's PDFTextStripper.processTextPosition(), diacritics are merged
+ * into the adjacent glyph while duplicated overlapping glyphs are skipped.
+ * <br>
+ * Shared by {@link PageContentEngine} and {@link GroupedTextStripper} in positions-only mode,
+ * where the glyphs are not passed on to PDFTextStripper.
+ */
+class DiacriticMerger {
+
+	private final Map<String, TreeMap<Float, TreeSet<Float>>> mapCharacterList = new HashMap<>();
+	private TextPosition lastTextPosition = null;
+
+	void reset()
+	{
+		this.mapCharacterList.clear();
+		this.lastTextPosition = null;
+	}
+
+	/**
+	 * @param isInActualText glyphs of a marked content with /ActualText are never suppressed
+	 */
+	void process(TextPosition text, boolean isInActualText)
+	{
+		boolean isShowCharacter = true;
+		if(!isInActualText)
+		{
+			isShowCharacter = false;
+			String sTextChar = text.getUnicode();
+			float x = text.getX();
+			float y = text.getY();
+			TreeMap<Float, TreeSet<Float>> mapSameChars = mapCharacterList.computeIfAbsent(sTextChar, k -> new TreeMap<>());
+
+			boolean isSuppressChar = false;
+			float tolerance = text.getWidth() / sTextChar.length() / 3.0f;
+			SortedMap<Float, TreeSet<Float>> xMatches = mapSameChars.subMap(x - tolerance, x + tolerance);
+			for(TreeSet<Float> xMatch : xMatches.values())
+			{
+				if(!xMatch.subSet(y - tolerance, y + tolerance).isEmpty())
+				{
+					isSuppressChar = true;
+					break;
+				}
+			}
+			if(!isSuppressChar)
+			{
+				mapSameChars.computeIfAbsent(x, k -> new TreeSet<>()).add(y);
+				isShowCharacter = true;
+			}
+		}
+
+		if(isShowCharacter)
+		{
+			if(lastTextPosition==null)
+			{
+				lastTextPosition = text;
+			}
+			else if(text.isDiacritic() && lastTextPosition.contains(text))
+			{
+				lastTextPosition.mergeDiacritic(text);
+			}
+			else if(lastTextPosition.isDiacritic() && text.contains(lastTextPosition))
+			{
+				text.mergeDiacritic(lastTextPosition);
+				lastTextPosition = text;
+			}
+			else
+			{
+				lastTextPosition = text;
+			}
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
+
+/**
+ * Extracted images of a document, so that an image drawn many times (logos, watermarks,
+ * letterheads) is only decoded, checked and base64 encoded once and each placement only
+ * adds its own position.
+ * <br>
+ * Image XObjects are keyed by their COS object key, inline images by a hash of their data.
+ * Payloads are kept per placement variant, as the resizing and cropping of an image depend
+ * on where it is drawn. Size-bounded, the least recently used payloads are evicted first.
+ */
+public class DocumentImageCache {
+
+	public static long DEFAULT_MAX_CACHE_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * Encoded image, or only the solid color check result for a skipped image
+	 */
+	public static class ImagePayload
+	{
+		private final String img_base64;
+		private final boolean is_solid_color;
+		private final int solid_rgb;
+
+		public ImagePayload(String aImgBase64, boolean isSolidColor, int aSolidRGB)
+		{
+			this.img_base64 	= aImgBase64;
+			this.is_solid_color = isSolidColor;
+			this.solid_rgb 		= aSolidRGB;
+		}
+
+		public String getImageBase64()
+		{
+			return this.img_base64;
+		}
+
+		public boolean isSolidColor()
+		{
+			return this.is_solid_color;
+		}
+
+		public int getSolidRGB()
+		{
+			return this.solid_rgb;
+		}
+
+		private long sizeOf()
+		{
+			return 64 + (img_base64!=null ? img_base64.length() : 0);
+		}
+	}
+
+	// inline images with a named color space depend on the resources of the page
+	private static final List<COSName> DEVICE_COLORSPACES = List.of(
+			COSName.DEVICEGRAY, COSName.DEVICERGB, COSName.DEVICECMYK,
+			COSName.G, COSName.RGB, COSName.CMYK);
+
+	private final long max_cache_bytes;
+
+	// decoded width & height of each image, to tell the variant before decoding it
+	private final Map<Object, int[]> mapImageSizes = new HashMap<>();
+	// access-ordered, eldest entry is the least recently used
+	private final LinkedHashMap<List<Object>, ImagePayload> mapPayloads = new LinkedHashMap<>(16, 0.75f, true);
+	private long total_bytes = 0;
+
+	private long hit_count = 0;
+
+	public DocumentImageCache()
+	{
+		this(DEFAULT_MAX_CACHE_BYTES);
+	}
+
+	public DocumentImageCache(long aMaxCacheBytes)
+	{
+		this.max_cache_bytes = aMaxCacheBytes;
+	}
+
+	/**
+	 * Cache key of the image, null when it can't be cached
+	 */
+	public Object getImageKey(PDImage aImage)
+	{
+		if(aImage instanceof PDImageXObject)
+		{
+			COSStream stream = ((PDImageXObject) aImage).getCOSObject();
+			COSObjectKey key = stream.getKey();
+			// direct stream, the same object is only drawn again through the same resources
+			return key!=null ? key : stream;
+		}
+		else if(aImage instanceof PDInlineImage)
+		{
+			PDInlineImage inlineImage = (PDInlineImage) aImage;
+			COSBase colorSpace = inlineImage.getCOSObject().getDictionaryObject(COSName.CS, COSName.COLORSPACE);
+			if(colorSpace!=null && !DEVICE_COLORSPACES.contains(colorSpace))
+				return null;
+
+			MessageDigest digest = newDigest();
+			digest.update(inlineImage.getCOSObject().toString().getBytes(StandardCharsets.UTF_8));
+			digest.update(inlineImage.getData());
+			return "inline:"+HexFormat.of().formatHex(digest.digest());
+		}
+		return null;
+	}
+
+	public synchronized int[] getImageSize(Object aImageKey)
+	{
+		return mapImageSizes.get(aImageKey);
+	}
+
+	public synchronized void putImageSize(Object aImageKey, int aWidth, int aHeight)
+	{
+		mapImageSizes.put(aImageKey, new int[] {aWidth, aHeight});
+	}
+
+	public synchronized ImagePayload getPayload(Object aImageKey, String aVariant)
+	{
+		ImagePayload payload = mapPayloads.get(List.of(aImageKey, aVariant));
+		if(payload!=null)
+			hit_count++;
+		return payload;
+	}
+
+	public synchronized void putPayload(Object aImageKey, String aVariant, ImagePayload aPayload)
+	{
+		long lBytes = aPayload.sizeOf();
+		if(lBytes>this.max_cache_bytes)
+			return;
+
+		ImagePayload old = mapPayloads.put(List.of(aImageKey, aVariant), aPayload);
+		if(old!=null)
+			total_bytes -= old.sizeOf();
+		total_bytes += lBytes;
+
+		Iterator<ImagePayload> iter = mapPayloads.values().iterator();
+		while(total_bytes>this.max_cache_bytes && iter.hasNext())
+		{
+			total_bytes -= iter.next().sizeOf();
+			iter.remove();
+		}
+	}
+
+	public synchronized void clear()
+	{
+		mapImageSizes.clear();
+		mapPayloads.clear();
+		total_bytes = 0;
+	}
+
+	public synchronized long getHitCount()
+	{
+		return hit_count;
+	}
+
+	public synchronized long getTotalBytes()
+	{
+		return total_bytes;
+	}
+
+	private static MessageDigest newDigest()
+	{
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
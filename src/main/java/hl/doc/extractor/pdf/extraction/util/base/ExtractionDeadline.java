@@ -0,0 +1,63 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+/**
+ * Time budget of a page, optionally bound by the time budget of its document.
+ * <br>
+ * Long running steps poll {@link #checkExpired()} and stop once it returns true,
+ * the page is then flagged as timed out and only holds the content extracted so far.
+ */
+public class ExtractionDeadline {
+
+	private final long deadline_nanos;
+	private final ExtractionDeadline parent;
+	private volatile boolean is_cancelled = false;
+	private volatile boolean is_timed_out = false;
+
+	/**
+	 * @param aTimeoutMs 0 or less for no time limit
+	 * @param aParent e.g. the document deadline, may be null
+	 */
+	public ExtractionDeadline(long aTimeoutMs, ExtractionDeadline aParent)
+	{
+		this.deadline_nanos = (aTimeoutMs>0) ? System.nanoTime() + aTimeoutMs*1_000_000L : Long.MAX_VALUE;
+		this.parent = aParent;
+	}
+
+	public void cancel()
+	{
+		this.is_cancelled = true;
+	}
+
+	/**
+	 * Deadline passed or cancelled, without flagging it as timed out
+	 */
+	public boolean isExpired()
+	{
+		return is_cancelled
+				|| (deadline_nanos!=Long.MAX_VALUE && System.nanoTime()>deadline_nanos)
+				|| (parent!=null && parent.isExpired());
+	}
+
+	/**
+	 * Same as {@link #isExpired()}, the page is flagged as timed out when it returns true
+	 */
+	public boolean checkExpired()
+	{
+		if(!is_timed_out && isExpired())
+			is_timed_out = true;
+		return is_timed_out;
+	}
+
+	/**
+	 * Some processing was stopped because of this deadline
+	 */
+	public boolean isTimedOut()
+	{
+		return is_timed_out;
+	}
+
+	public static boolean checkExpired(ExtractionDeadline aDeadline)
+	{
+		return aDeadline!=null && aDeadline.checkExpired();
+	}
+}
@@ -1,312 +1,200 @@
 package hl.doc.extractor.pdf.extraction.util.base;
 
 import java.awt.Rectangle;
-import java.awt.geom.Rectangle2D;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDMarkedContent;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
 
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
-import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
 
 public class GroupedTextStripper extends PDFTextStripper {
-    
-    List<ContentItem> contentItems = new ArrayList<>();
-    List<TextPosition> currentLine = new ArrayList<>();
-    int iExtractSeq = 1;
-    
-    private Map<String, Rectangle> mapAreasOfInterest = null;
-    private Map<String, List<ContentItem>> mapContentItemByAreas = new HashMap<>();
 
-    GroupedTextStripper() throws IOException {
+    // kept referenced, JUL only holds loggers weakly and would drop the level
+    private static final Logger loggerPdModel 	= Logger.getLogger("org.apache.pdfbox.pdmodel");
+    private static final Logger loggerGraphics 	= Logger.getLogger("org.apache.pdfbox.contentstream.operator.graphics");
+
+    static {
         // Silence the missing font warning
-        Logger.getLogger("org.apache.pdfbox.pdmodel").setLevel(Level.SEVERE);
-        Logger.getLogger("org.apache.pdfbox.contentstream.operator.graphics").setLevel(Level.SEVERE);
-    }
-    
-    private String getCommonFontStyle(List<TextPosition> aLineText)
-    {
-        if(aLineText==null || aLineText.size()==0)
-            return null;
-        
-        PDFont firstFont     = null;
-        PDFont lastFont     = null;
-        
-        TextPosition textFirst = null;
-        TextPosition textLast = null;
-        
-        int iListSize = aLineText.size()-1;
-        //search first character
-        for(int i=0; i<=iListSize; i++)
-        {
-            if(firstFont==null)
-            {
-                textFirst = aLineText.get(i);
-                if(textFirst.getUnicode().trim().length()>0)
-                {
-                    firstFont = textFirst.getFont();
-                }
-            }
-            if(lastFont==null)
-            {
-                textLast = aLineText.get(iListSize-i);
-                if(textLast.getUnicode().trim().length()>0)
-                {
-                    lastFont = textLast.getFont();
-                }
-            }
-            
-            if(lastFont!=null && firstFont!=null)
-                break;
-        }
-        
-        if(firstFont!=null && lastFont!=null)
-        {
-            String[] sFontNames = new String[] 
-                    {firstFont.getName(), lastFont.getName()};
-            
-            for(int i=0; i<sFontNames.length; i++)
-            {
-                //Remove custom random font name prefix 
-                if (sFontNames[i]!=null && sFontNames[i].contains("+")) {
-                    sFontNames[i] = sFontNames[i].substring(sFontNames[i].indexOf("+") + 1);
-                }
-            }
-            
-            if(sFontNames[0]!=null)
-            {
-                if(sFontNames[0].equals(sFontNames[1]))
-                    return sFontNames[0]+" ("+textFirst.getFontSizeInPt()+")";
-            }
-            else if(textFirst.getFontSizeInPt() == textLast.getFontSizeInPt())
-            {
-                return "unknown ("+textFirst.getFontSizeInPt()+")";
-            }
-        }
-        
-        return null;
+        loggerPdModel.setLevel(Level.SEVERE);
+        loggerGraphics.setLevel(Level.SEVERE);
     }
 
-    @Override
-    protected void processTextPosition(TextPosition text) {
-        // --- FIX: Filter by Multiple Regions of Interest Map ---
-        if (mapAreasOfInterest!=null && !mapAreasOfInterest.isEmpty()) {
-            double x = text.getXDirAdj();
-            double y = text.getYDirAdj();
-            
-            boolean inAnyRegion = false;
-            for (Rectangle rect : mapAreasOfInterest.values()) {
-                if (rect.contains(x, y)) {
-                    inAnyRegion = true;
-                    break; // Character matches at least one registered area
-                }
-            }
-            
-            // If the character doesn't fall into any defined region, discard it
-            if (!inAnyRegion) {
-                return;
-            }
-        }
+    /**
+     * Receives the text lines of each page at the end of the page, in page order.
+     */
+    @FunctionalInterface
+    public interface PageTextConsumer {
 
-        if (currentLine.isEmpty()) {
-            currentLine.add(text);
-            super.processTextPosition(text); 
-            return;
-        }
+    	/**
+    	 * @return false to skip the remaining pages
+    	 */
+    	public boolean consumePageText(int aPageNo, List<ContentItem> aPageItems) throws IOException;
+    }
 
-        TextPosition last = currentLine.get(currentLine.size() - 1);
+    private TextContentCollector textCollector = new TextContentCollector();
+    private boolean is_positions_only = false;
+    private PageTextConsumer pageTextConsumer = null;
 
-	     // --- FIX 1: Baseline-based grouping to handle superscripts/subscripts ---
-	     // Use getYDirAdj() instead of getTextMatrix().getTranslateY() to automatically account for page rotation
-	     float baselineLast = last.getYDirAdj();
-	     float baselineCurrent = text.getYDirAdj();
+    // in positions-only mode, PDFTextStripper's /ActualText and diacritic handling is done here
+    private final DiacriticMerger diacriticMerger = new DiacriticMerger();
+    private final Deque<PDMarkedContent> dequeMarkedContents = new ArrayDeque<>();
+    private String actualText = null;
+    private boolean isFirstActualTextPosition = false;
 
-	     float hLast = last.getHeightDir();
-	     float hCurrent = text.getHeightDir();
+    GroupedTextStripper() throws IOException {
+    }
 
-	     // relative tolerance based on the larger font height
-	     float tolerance = Math.max(hLast, hCurrent) * 0.8f;
+    public List<ContentItem> getContentItems()
+    {
+    	return textCollector.getContentItems();
+    }
 
-	     if (Math.abs(baselineLast - baselineCurrent) < tolerance) {
-	         currentLine.add(text);
-	     } else {
-	         addBoundingBox(getCurrentPage(), currentLine);
-	         currentLine.clear();
-	         currentLine.add(text);
-	     }
-        super.processTextPosition(text);
+    /**
+     * Only collect the text lines, glyphs are not passed on to PDFTextStripper
+     * so there is no per-article bookkeeping, sorting and text output.
+     */
+    public void setPositionsOnly(boolean isPositionsOnly)
+    {
+    	this.is_positions_only = isPositionsOnly;
     }
-    
-    public Rectangle getAreaOfInterest(String aAreaName)
+
+    public boolean isPositionsOnly()
     {
-    	if(this.mapAreasOfInterest!=null)
-    	{
-    		return this.mapAreasOfInterest.get(aAreaName);
-    	}
-    	return null;
+    	return this.is_positions_only;
     }
-    
-    public void clearAreaOfInterest()
+
+    /**
+     * Collect the text lines of the pages without building the text output (see getText())
+     */
+    public List<ContentItem> extractContentItems(PDDocument aDoc) throws IOException
     {
-    	if(this.mapAreasOfInterest!=null)
-    	{
-    		this.mapAreasOfInterest.clear();
-    	}
-    	else
-    	{
-    		this.mapAreasOfInterest = new HashMap<>();
-    	}
+    	writeText(aDoc, Writer.nullWriter());
+    	return getContentItems();
     }
-    
-    public boolean addAreaOfInterest(String aAreaName, Rectangle aAreaRect)
+
+    /**
+     * Same as extractContentItems() but the text lines are handed to aConsumer page by page,
+     * so a range of pages is extracted in a single run with each page numbered on its own.
+     * <br>
+     * Pages without content stream are not handed over.
+     */
+    public void extractContentItemsByPage(PDDocument aDoc, PageTextConsumer aConsumer) throws IOException
     {
-        if(aAreaName!=null && aAreaRect!=null)
-        {
-        	if(this.mapAreasOfInterest!=null)
-        	{
-        		return this.mapAreasOfInterest.put(aAreaName, aAreaRect)!=null;
-        	}
-        }
-        return false;
+    	int iEndPage = getEndPage();
+    	this.pageTextConsumer = aConsumer;
+    	try {
+    		writeText(aDoc, Writer.nullWriter());
+    	}
+    	finally {
+    		this.pageTextConsumer = null;
+    		setEndPage(iEndPage);
+    	}
     }
 
     @Override
-    protected void endPage(PDPage page) throws IOException {
-        if (!currentLine.isEmpty()) {
-            addBoundingBox(page, currentLine);
-            currentLine.clear();
-        }
-        super.endPage(page);
+    protected void startPage(PDPage page) throws IOException {
+    	textCollector.startPage(page, getCurrentPageNo());
+    	diacriticMerger.reset();
+    	super.startPage(page);
     }
 
-    private void addBoundingBox(PDPage page, List<TextPosition> line) {
-        if (line.isEmpty()) return;
-
-        // --- 1) Compute main baseline (median) and full line height ---
-        List<Float> baselines = new ArrayList<>();
-        float maxHeight = 0;
-
-        for (TextPosition t : line) {
-            baselines.add(t.getYDirAdj());
-            maxHeight = Math.max(maxHeight, t.getHeightDir());
-        }
-
-        Collections.sort(baselines);
-        float mainBaseline = baselines.get(baselines.size() / 2);
+    @Override
+    protected void processTextPosition(TextPosition text) {
+    	if(this.is_positions_only && actualText!=null)
+    	{
+    		text = withUnicode(text, isFirstActualTextPosition ? actualText : "");
+    		isFirstActualTextPosition = false;
+    	}
 
-        // --- 2) Bounding box extremes ---
-        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
-        float maxX = 0, maxY = 0;
-        StringBuffer sb = new StringBuffer();
-        
-        // Track the horizontal end position of the previous character
-        float lastXEnd = -1f;
-        
-        for (TextPosition t : line) {
-            float x = t.getXDirAdj();
-            float w = t.getWidthDirAdj();
+    	textCollector.processGlyph(text);
+    	if(this.is_positions_only)
+    		diacriticMerger.process(text, actualText!=null);
+    	else
+    		super.processTextPosition(text);
+    }
 
-            // --- Detect missing word spaces using horizontal gaps ---
-            if (lastXEnd != -1f) {
-                float gap = x - lastXEnd;
-                
-                // Fallback to a sensible default if the font doesn't specify a space width
-                float spaceWidthThreshold = t.getWidthOfSpace();
-                if (spaceWidthThreshold <= 0) {
-                    spaceWidthThreshold = t.getWidthDirAdj() * 0.5f; 
-                } else {
-                    spaceWidthThreshold = spaceWidthThreshold * 0.5f; // 50% of a standard space
-                }
+    /**
+     * Same glyph with another unicode, as TextPosition.setUnicode() is only visible to PDFTextStripper
+     */
+    private static TextPosition withUnicode(TextPosition text, String aUnicode)
+    {
+    	return new TextPosition(text.getRotation(), text.getPageWidth(), text.getPageHeight(),
+    			text.getTextMatrix(), text.getEndX(), text.getEndY(), text.getHeight(),
+    			text.getIndividualWidths()[0], text.getWidthOfSpace(), aUnicode,
+    			text.getCharacterCodes(), text.getFont(), text.getFontSize(), (int) text.getFontSizeInPt());
+    }
 
-                // If the gap is wide enough and the text doesn't already end/start with a space
-                if (gap > spaceWidthThreshold && sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ' && !t.getUnicode().startsWith(" ")) {
-                    sb.append(" ");
-                }
-            }
+    public Rectangle getAreaOfInterest(String aAreaName)
+    {
+    	return textCollector.getAreaOfInterest(aAreaName);
+    }
 
-            // --- 3) NORMALIZED baseline for bounding box only ---
-            float normalizedBaseline = mainBaseline;
+    public void clearAreaOfInterest()
+    {
+    	textCollector.clearAreaOfInterest();
+    }
 
-            // --- 4) NORMALIZED height for bounding box only ---
-            float normalizedHeight = maxHeight;
+    public boolean addAreaOfInterest(String aAreaName, Rectangle aAreaRect)
+    {
+    	return textCollector.addAreaOfInterest(aAreaName, aAreaRect);
+    }
 
-            float yTop = normalizedBaseline - normalizedHeight;
+    @Override
+    public void beginMarkedContentSequence(COSName tag, COSDictionary properties) {
+    	PDMarkedContent markedContent = PDMarkedContent.create(tag, properties);
+    	dequeMarkedContents.push(markedContent);
+    	actualText = markedContent.getActualText();
+    	if(actualText!=null)
+    	{
+    		actualText = actualText.replace("\u00AD", "");
+    		isFirstActualTextPosition = true;
+    	}
+    	super.beginMarkedContentSequence(tag, properties);
+    }
 
-            minX = Math.min(minX, x);
-            minY = Math.min(minY, yTop);
-            maxX = Math.max(maxX, x + w);
-            maxY = Math.max(maxY, normalizedBaseline);
+    @Override
+    public void endMarkedContentSequence() {
+    	PDMarkedContent markedContent = dequeMarkedContents.peek();
+    	if(markedContent!=null)
+    	{
+    		if(markedContent.getActualText()!=null)
+    			actualText = null;
+    		dequeMarkedContents.pop();
+    	}
+    	super.endMarkedContentSequence();
+    }
 
-            sb.append(t.getUnicode());
-            
-            // Update the end pointer for the next character comparison
-            lastXEnd = x + w;
-        }
-        
-        String sData = sb.toString();
-        
-        // --- OPTION 1 FIX: Handle line breaks ---
-        if (sData.length() > 0 && !sData.endsWith(" ")) {
-            sData += " ";
-        }
+    @Override
+    protected void writePage() throws IOException {
+    	if(!this.is_positions_only)
+    		super.writePage();
+    }
 
-        String sFormat = null;
-        if(sData.trim().length() > 0)
-        {
-            sFormat = getCommonFontStyle(line);
-        }
+    @Override
+    protected void endPage(PDPage page) throws IOException {
+    	textCollector.endPage(page);
+        super.endPage(page);
 
-        double dX = minX;
-        double dY = minY;
-        double dW = maxX - minX;
-        double dH = maxY - minY;
-        
-        if(dX < 0) dX = 0;
-        if(dY < 0) dY = 0;
-        
-        Rectangle2D rect2D = new Rectangle2D.Double(dX, dY, dW, dH);
-        
-        ContentItem textItem = new ContentItem(Type.TEXT, sData, getCurrentPageNo(), rect2D);
-        textItem.setExtract_seq(iExtractSeq++);
-        textItem.setContentFormat(sFormat);
-        
-        if(mapAreasOfInterest!=null)
+        if(this.pageTextConsumer!=null)
         {
-        	for(String sAreaName: mapAreasOfInterest.keySet())
-        	{
-        		Rectangle rectInterest = mapAreasOfInterest.get(sAreaName);
-        		
-        		if(rectInterest.contains(
-        				rect2D.getX(), rect2D.getY(), 
-        				rect2D.getWidth(), rect2D.getHeight()))
-				{
-        			textItem.assocLayoutArea(sAreaName);
-        			//
-        			List<ContentItem> listItems = mapContentItemByAreas.get(sAreaName);
-        			if(listItems==null)
-        				listItems = new ArrayList<>();
-        			listItems.add(textItem);
-				}
-        	}
-        	
-        	if(textItem.assocLayoutAreasAsString().length()>0)
+        	int iPageNo = getCurrentPageNo();
+        	if(!this.pageTextConsumer.consumePageText(iPageNo, textCollector.takeContentItems()))
         	{
-        		contentItems.add(textItem);
+        		// PDFTextStripper skips the pages after the end page
+        		setEndPage(iPageNo);
         	}
         }
-        else
-        {
-        	contentItems.add(textItem);
-        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,220 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.util.Matrix;
+
+import hl.common.ImgUtil;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.util.ContentUtil;
+import hl.doc.extractor.pdf.extraction.util.base.DocumentImageCache.ImagePayload;
+
+public class ImageContentCollector implements ContentCollector {
+
+	final List<ContentItem> contentItems = new ArrayList<>();
+	int iExtractSeq = 1;
+	int iImagesDecoded = 0;
+	int iImagesSkipped = 0;
+	int iImagesReused = 0;
+
+	private boolean isResizeImage 	= false;
+	private int iMinImageHeight 	= 3;
+
+	private int iPageNo 	= -1;
+	private float scale 	= 1.0f;
+	private double pgHeight = 0;
+	private double pgWidth 	= 0;
+
+	// shared by the pages of a document, null to decode every image placement
+	private DocumentImageCache imageCache = null;
+
+	public ImageContentCollector(boolean isResizeImage, int iMinImageHeight)
+	{
+		this.isResizeImage = isResizeImage;
+		this.iMinImageHeight = iMinImageHeight;
+	}
+
+	@Override
+	public boolean isCollectImages() {
+		return true;
+	}
+
+	@Override
+	public List<ContentItem> getContentItems() {
+		return contentItems;
+	}
+
+	public int getImagesDecoded() {
+		return iImagesDecoded;
+	}
+
+	public int getImagesSkipped() {
+		return iImagesSkipped;
+	}
+
+	public int getImagesReused() {
+		return iImagesReused;
+	}
+
+	public void setImageCache(DocumentImageCache aImageCache) {
+		this.imageCache = aImageCache;
+	}
+
+	@Override
+	public void startPage(PDPage aPage, int aPageNo) {
+		this.iPageNo = aPageNo;
+		this.pgHeight = aPage.getMediaBox().getHeight();
+		this.pgWidth = aPage.getMediaBox().getWidth();
+	}
+
+	@Override
+	public void processImage(PDImage pdImage, PDGraphicsState gs) throws IOException {
+        Matrix ctm = gs.getCurrentTransformationMatrix(); // image → user-space
+
+        // Compute bounding box from CTM without multiplying by image pixel size
+        double minX 	= ctm.getTranslateX();
+        double minY 	= ctm.getTranslateY();
+        double width 	= ctm.getScaleX() +1; //x start with 0
+        double height 	= ctm.getScaleY() +1; //y start with 0
+
+        // Flip Y for BufferedImage coordinates
+        double flippedY = (pgHeight - minY - height);
+
+        int iX = (int)(minX * scale);
+        int iY = (int)(flippedY * scale);
+        int iW = (int)(width * scale);
+        int iH = (int)(height * scale);
+
+        // size of a cached image is known without decoding it again
+        Object imgKey = (imageCache!=null) ? imageCache.getImageKey(pdImage) : null;
+        int[] imgSize = (imgKey!=null) ? imageCache.getImageSize(imgKey) : null;
+        BufferedImage imgAdj = null;
+        if(imgSize==null)
+        {
+        	imgAdj = pdImage.getImage();
+        	iImagesDecoded++;
+        	imgSize = new int[] {imgAdj.getWidth(), imgAdj.getHeight()};
+        	if(imgKey!=null)
+        		imageCache.putImageSize(imgKey, imgSize[0], imgSize[1]);
+        }
+        String imgFormat = pdImage.getSuffix();
+
+        // resizing & cropping of the image depend on its placement
+        boolean isResized = isResizeImage && (imgSize[0]>iW || imgSize[1]>iH);
+        boolean isCropped = iX<0 || iY<0;
+        String sVariant = (isResized ? "r"+iW+"x"+iH : "") + (isCropped ? "c"+iX+","+iY+","+iW+","+iH : "");
+        int iPlacedX = iX, iPlacedY = iY, iPlacedW = iW, iPlacedH = iH;
+
+        // Reset coordinates to page origin
+        if(iX<0) iX = 0;
+        if(iY<0) iY = 0;
+
+        // Clamp dimensions to page boundaries
+        if(iW + iX > pgWidth) {
+        	iW = (int)pgWidth - iX - 1;
+        }
+        if(iH + iY > pgHeight) {
+        	iH = (int)pgHeight - iY - 1;
+        }
+
+        // Skip image if it's completely outside page bounds
+        if(iW <= 0 || iH <= 0)
+        {
+        	ImageExtractUtil.logger.warning("Image skipped - completely out of page bounds at (" + iX + "," + iY + ")");
+        	iImagesSkipped++;
+        	return;
+        }
+
+        if(iH<iMinImageHeight)
+        {
+        	ImageExtractUtil.logger.warning("Warning: Image skipped - below minHeight of "+iMinImageHeight+" (" + iW + "x" + iH + ")");
+        	iImagesSkipped++;
+        	return;
+        }
+
+        ImagePayload payload = (imgKey!=null) ? imageCache.getPayload(imgKey, sVariant) : null;
+        if(payload!=null)
+        {
+        	iImagesReused++;
+        }
+        else
+        {
+        	if(imgAdj==null)
+        	{
+        		imgAdj = pdImage.getImage();
+        		iImagesDecoded++;
+        	}
+        	imgAdj = adjustImage(imgAdj, isResized, isCropped, iPlacedX, iPlacedY, iPlacedW, iPlacedH);
+
+        	Color colorSolid = ImgUtil.isSolidColorOnly(imgAdj);
+        	if(colorSolid!=null)
+        		payload = new ImagePayload(null, true, colorSolid.getRGB());
+        	else
+        		payload = new ImagePayload(ImgUtil.imageToBase64(imgAdj, imgFormat), false, 0);
+
+        	if(imgKey!=null)
+        		imageCache.putPayload(imgKey, sVariant, payload);
+        }
+
+        if(payload.isSolidColor())
+        {
+        	ImageExtractUtil.logger.warning("Warning: Image skipped - solid color image detected ! (RGB:"+payload.getSolidRGB()+" - "+ iW + "x" + iH + ")");
+        	iImagesSkipped++;
+        	return;
+        }
+
+        Rectangle2D rect = new Rectangle2D.Double(iX, iY, iW, iH);
+
+        ContentItem item = ContentUtil.imageToContentItem(
+        		payload.getImageBase64(),  //Encoded image
+        		imgFormat, //Image format
+        		iPageNo, rect);
+        item.setExtract_seq(iExtractSeq++);
+        //
+        contentItems.add(item);
+	}
+
+	/**
+	 * Resized to the placement size and cropped to the page when placed beyond its top-left corner
+	 */
+	private static BufferedImage adjustImage(BufferedImage imgAdj, boolean isResized, boolean isCropped,
+			int iX, int iY, int iW, int iH) throws IOException
+	{
+        if(isResized)
+        {
+        	imgAdj = ImgUtil.resizeImg(imgAdj, iW, iH, false);
+        }
+
+        // ---- Out-of-Bounds Image Adjustment ----
+        if(isCropped)
+        {
+        	// Adjust subimage extraction to prevent out-of-bounds access
+        	int srcX = Math.max(0, Math.abs(iX));
+        	int srcY = Math.max(0, Math.abs(iY));
+
+        	// Ensure subimage dimensions don't exceed source image bounds
+        	int srcWidth = Math.min(iW - srcX, imgAdj.getWidth() - srcX);
+        	int srcHeight = Math.min(iH - srcY, imgAdj.getHeight() - srcY);
+
+        	if(srcWidth > 0 && srcHeight > 0)
+        	{
+        		try {
+        			imgAdj = imgAdj.getSubimage(srcX, srcY, srcWidth, srcHeight);
+        		} catch (Exception e) {
+        			// Log and skip if subimage extraction fails
+        			System.err.println("Warning: Failed to extract subimage at (" + srcX + "," + srcY +
+        					") with size (" + srcWidth + "x" + srcHeight + "): " + e.getMessage());
+        		}
+        	}
+        }
+        return imgAdj;
+	}
+}
@@ -0,0 +1,232 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Aho-Corasick automaton of the search terms, tells whether a text contains any of them
+ * in a single pass of the text, regardless of the number of terms.
+ * <br>
+ * Terms and texts are matched as given, lowercase both with toLowerCase() for the
+ * case-insensitive matching of ContentUtil.searchItems(). Built once, the matcher can be
+ * shared by all documents and threads.
+ */
+public class MultiTermMatcher {
+
+	private static final int ROOT = 0;
+
+	private final int term_count;
+	// the empty term is found in any text, same as String.indexOf("")
+	private final boolean is_match_all;
+
+	private int state_count = 1;
+	private int[] fail_states;
+	// a term ends at the state or at one of its fail states
+	private boolean[] is_match_states;
+	// for the breadth-first walk when building the fail states
+	private int[] first_child;
+	private int[] next_sibling;
+	private char[] state_chars; // char of the edge into the state
+
+	// goto function, open addressing on (state << 16 | char)
+	private long[] table_keys;
+	private int[] table_states; // state+1, 0 for empty slot
+	private int table_mask;
+	private int table_size = 0;
+
+	public MultiTermMatcher(Collection<String> aTerms)
+	{
+		this.table_keys 	= new long[1024];
+		this.table_states 	= new int[1024];
+		this.table_mask 	= 1023;
+		this.first_child 	= new int[256];
+		this.next_sibling 	= new int[256];
+		this.state_chars 	= new char[256];
+		this.is_match_states = new boolean[256];
+		Arrays.fill(first_child, -1);
+		Arrays.fill(next_sibling, -1);
+
+		int iTerms = 0;
+		boolean isMatchAll = false;
+		for(String sTerm : aTerms)
+		{
+			if(sTerm==null)
+				continue;
+			iTerms++;
+			if(sTerm.length()==0)
+				isMatchAll = true;
+			else
+				addTerm(sTerm);
+		}
+		this.term_count = iTerms;
+		this.is_match_all = isMatchAll;
+
+		buildFailStates();
+		// only needed while building
+		this.first_child = null;
+		this.next_sibling = null;
+		this.state_chars = null;
+	}
+
+	/**
+	 * Same as testing aText.indexOf(term)>-1 of each term
+	 */
+	public boolean isMatch(CharSequence aText)
+	{
+		if(this.is_match_all)
+			return true;
+		if(this.state_count==1)
+			return false;
+
+		int iState = ROOT;
+		for(int i=0; i<aText.length(); i++)
+		{
+			char ch = aText.charAt(i);
+			int iNext = getNextState(iState, ch);
+			while(iNext<0 && iState!=ROOT)
+			{
+				iState = fail_states[iState];
+				iNext = getNextState(iState, ch);
+			}
+			iState = iNext<0 ? ROOT : iNext;
+			if(is_match_states[iState])
+				return true;
+		}
+		return false;
+	}
+
+	public int getTermCount()
+	{
+		return this.term_count;
+	}
+
+	public int getStateCount()
+	{
+		return this.state_count;
+	}
+
+	private void addTerm(String aTerm)
+	{
+		int iState = ROOT;
+		for(int i=0; i<aTerm.length(); i++)
+		{
+			char ch = aTerm.charAt(i);
+			int iNext = getNextState(iState, ch);
+			if(iNext<0)
+			{
+				iNext = newState();
+				putNextState(iState, ch, iNext);
+				state_chars[iNext] = ch;
+				next_sibling[iNext] = first_child[iState];
+				first_child[iState] = iNext;
+			}
+			iState = iNext;
+		}
+		is_match_states[iState] = true;
+	}
+
+	private int newState()
+	{
+		int iState = state_count++;
+		if(iState>=first_child.length)
+		{
+			int iCapacity = first_child.length * 2;
+			first_child 	= Arrays.copyOf(first_child, iCapacity);
+			next_sibling 	= Arrays.copyOf(next_sibling, iCapacity);
+			state_chars 	= Arrays.copyOf(state_chars, iCapacity);
+			is_match_states = Arrays.copyOf(is_match_states, iCapacity);
+			Arrays.fill(first_child, iState, iCapacity, -1);
+			Arrays.fill(next_sibling, iState, iCapacity, -1);
+		}
+		return iState;
+	}
+
+	/**
+	 * Fail state of each state is the longest proper suffix of its path that is also a path
+	 * from the root, states are visited breadth-first so that shorter paths are done first.
+	 */
+	private void buildFailStates()
+	{
+		this.fail_states = new int[state_count];
+		this.is_match_states = Arrays.copyOf(is_match_states, state_count);
+
+		int[] queue = new int[state_count];
+		int iHead = 0, iTail = 0;
+		for(int c=first_child[ROOT]; c>=0; c=next_sibling[c])
+		{
+			fail_states[c] = ROOT;
+			queue[iTail++] = c;
+		}
+
+		while(iHead<iTail)
+		{
+			int iState = queue[iHead++];
+			for(int c=first_child[iState]; c>=0; c=next_sibling[c])
+			{
+				char ch = state_chars[c];
+				int iFail = fail_states[iState];
+				int iNext = getNextState(iFail, ch);
+				while(iNext<0 && iFail!=ROOT)
+				{
+					iFail = fail_states[iFail];
+					iNext = getNextState(iFail, ch);
+				}
+				fail_states[c] = iNext<0 ? ROOT : iNext;
+				is_match_states[c] |= is_match_states[fail_states[c]];
+				queue[iTail++] = c;
+			}
+		}
+	}
+
+	private int getNextState(int aState, char ch)
+	{
+		long lKey = ((long) aState << 16) | ch;
+		int h = hash(lKey) & table_mask;
+		while(table_states[h]!=0)
+		{
+			if(table_keys[h]==lKey)
+				return table_states[h]-1;
+			h = (h+1) & table_mask;
+		}
+		return -1;
+	}
+
+	private void putNextState(int aState, char ch, int aNextState)
+	{
+		if((table_size+1)*2 > table_keys.length)
+			resizeTable();
+
+		long lKey = ((long) aState << 16) | ch;
+		int h = hash(lKey) & table_mask;
+		while(table_states[h]!=0)
+			h = (h+1) & table_mask;
+		table_keys[h] 	= lKey;
+		table_states[h] = aNextState+1;
+		table_size++;
+	}
+
+	private void resizeTable()
+	{
+		long[] oldKeys 	= table_keys;
+		int[] oldStates = table_states;
+		table_keys 		= new long[oldKeys.length*2];
+		table_states 	= new int[oldStates.length*2];
+		table_mask 		= table_keys.length-1;
+		for(int i=0; i<oldKeys.length; i++)
+		{
+			if(oldStates[i]==0)
+				continue;
+			int h = hash(oldKeys[i]) & table_mask;
+			while(table_states[h]!=0)
+				h = (h+1) & table_mask;
+			table_keys[h] 	= oldKeys[i];
+			table_states[h] = oldStates[i];
+		}
+	}
+
+	private static int hash(long aValue)
+	{
+		long x = aValue * 0x9E3779B97F4A7C15L;
+		return (int)(x ^ (x >>> 32));
+	}
+}
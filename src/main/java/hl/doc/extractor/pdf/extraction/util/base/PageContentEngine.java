@@ -0,0 +1,514 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDMarkedContent;
+import org.apache.pdfbox.pdmodel.font.PDCIDFont;
+import org.apache.pdfbox.pdmodel.font.PDCIDFontType2;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.font.PDSimpleFont;
+import org.apache.pdfbox.pdmodel.font.PDTrueTypeFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType3Font;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.Counter;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.PageMetrics;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.Stage;
+
+/**
+ * Walks a page content stream once and feeds glyphs, image draws and path paints
+ * to the registered {@link ContentCollector}s.
+ * <br>
+ * Glyph positions are computed the same way as PDFBox's PDFTextStripper,
+ * so text lines match the ones from {@link GroupedTextStripper}.
+ */
+public class PageContentEngine extends PDFGraphicsStreamEngine {
+
+	private static Logger logger = Logger.getLogger(PageContentEngine.class.getName());
+	private static GlyphList glyphList = null;
+
+	// kept referenced, JUL only holds loggers weakly and would drop the level
+	private static final Logger loggerPdModel 	= Logger.getLogger("org.apache.pdfbox.pdmodel");
+	private static final Logger loggerGraphics 	= Logger.getLogger("org.apache.pdfbox.contentstream.operator.graphics");
+
+	static {
+		// Silence the missing font warning
+		loggerPdModel.setLevel(Level.SEVERE);
+		loggerGraphics.setLevel(Level.SEVERE);
+	}
+
+	private final List<ContentCollector> listCollectors = new ArrayList<>();
+	private final Map<COSDictionary, Float> mapFontHeight = new WeakHashMap<>();
+
+	private boolean isCollectGlyphs = false;
+	private boolean isCollectImages = false;
+	private boolean isCollectPaths 	= false;
+	private boolean isInType3Glyph 	= false;
+
+	private int iPageNo 				= -1;
+	private float pgHeight 				= 0;
+	private int pageRotation 			= 0;
+	private PDRectangle pageSize 		= null;
+	private Matrix translateMatrix 		= null;
+
+	// PDFTextStripper states that alter the glyphs seen by GroupedTextStripper
+	private final Deque<PDMarkedContent> dequeMarkedContents = new ArrayDeque<>();
+	private final DiacriticMerger diacriticMerger = new DiacriticMerger();
+	private String actualText 					= null;
+	private boolean isFirstActualTextPosition 	= false;
+
+	private Path2D currentPath = new GeneralPath();
+
+	// optional, null when metrics are not collected
+	private PageMetrics page_metrics = null;
+	// optional, null for no time limit
+	private ExtractionDeadline deadline = null;
+	private boolean is_timed_out = false;
+
+	private static class PageTimeoutException extends IOException
+	{
+		private static final long serialVersionUID = 1L;
+
+		PageTimeoutException(String aMessage)
+		{
+			super(aMessage);
+		}
+	}
+
+	public PageContentEngine(PDPage aPage, int aPageNo) {
+		super(aPage);
+		this.iPageNo = aPageNo;
+		this.pgHeight = aPage.getMediaBox().getHeight();
+	}
+
+	public void addCollector(ContentCollector aCollector)
+	{
+		if(aCollector!=null)
+		{
+			listCollectors.add(aCollector);
+			isCollectGlyphs |= aCollector.isCollectGlyphs();
+			isCollectImages |= aCollector.isCollectImages();
+			isCollectPaths 	|= aCollector.isCollectPaths();
+		}
+	}
+
+	/**
+	 * Time spent on glyphs, images & paths (incl. their collectors) and glyph count
+	 * are added to aPageMetrics.
+	 */
+	public void setPageMetrics(PageMetrics aPageMetrics)
+	{
+		this.page_metrics = aPageMetrics;
+	}
+
+	/**
+	 * Checked between operators, the rest of the content stream is skipped once it expires.
+	 */
+	public void setDeadline(ExtractionDeadline aDeadline)
+	{
+		this.deadline = aDeadline;
+	}
+
+	/**
+	 * The page content stream was not processed to the end because of the deadline
+	 */
+	public boolean isTimedOut()
+	{
+		return this.is_timed_out;
+	}
+
+	public void processPage() throws IOException
+	{
+		processPage(getPage());
+	}
+
+	@Override
+	public void processPage(PDPage page) throws IOException {
+		this.pageRotation = page.getRotation();
+		this.pageSize = page.getCropBox();
+		if(Float.compare(pageSize.getLowerLeftX(), 0)==0 && Float.compare(pageSize.getLowerLeftY(), 0)==0)
+			this.translateMatrix = null;
+		else
+			this.translateMatrix = Matrix.getTranslateInstance(-pageSize.getLowerLeftX(), -pageSize.getLowerLeftY());
+
+		this.diacriticMerger.reset();
+
+		for(ContentCollector c : listCollectors)
+			c.startPage(page, iPageNo);
+
+		long lStartNanos = (page_metrics!=null) ? System.nanoTime() : 0;
+
+		try {
+			super.processPage(page);
+		}
+		catch(PageTimeoutException e)
+		{
+			// keep what is collected so far
+			this.is_timed_out = true;
+			logger.warning(e.getMessage());
+		}
+
+		for(ContentCollector c : listCollectors)
+			c.endPage(page);
+
+		if(page_metrics!=null)
+			page_metrics.addElapsedNanos(Stage.CONTENT_STREAM, System.nanoTime()-lStartNanos);
+	}
+
+	@Override
+	protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+		if(ExtractionDeadline.checkExpired(deadline))
+			throw new PageTimeoutException("Page "+iPageNo+" timed out, the rest of the content stream is skipped.");
+		super.processOperator(operator, operands);
+	}
+
+	@Override
+	protected void operatorException(Operator operator, List<COSBase> operands, IOException e) throws IOException {
+		// PDFStreamEngine only logs the errors of some operators (e.g. Do), the timeout must go through
+		if(e instanceof PageTimeoutException)
+			throw e;
+		super.operatorException(operator, operands, e);
+	}
+
+	//---- Text ----
+	@Override
+	protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) throws IOException {
+		if(isCollectGlyphs && !isInType3Glyph)
+		{
+			long lStartNanos = (page_metrics!=null) ? System.nanoTime() : 0;
+
+			TextPosition text = toTextPosition(textRenderingMatrix, font, code, displacement);
+			if(text!=null)
+			{
+				for(ContentCollector c : listCollectors)
+				{
+					if(c.isCollectGlyphs())
+						c.processGlyph(text);
+				}
+				diacriticMerger.process(text, actualText!=null);
+			}
+
+			if(page_metrics!=null)
+			{
+				page_metrics.addElapsedNanos(Stage.TEXT, System.nanoTime()-lStartNanos);
+				page_metrics.increment(Counter.GLYPHS, 1);
+			}
+		}
+
+		// Type3 glyphs are content streams that may paint paths and images
+		if(font instanceof PDType3Font)
+		{
+			if(isCollectImages || isCollectPaths)
+			{
+				isInType3Glyph = true;
+				try {
+					super.showGlyph(textRenderingMatrix, font, code, displacement);
+				}
+				finally {
+					isInType3Glyph = false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Same computation as PDFBox's LegacyPDFStreamEngine.showGlyph()
+	 */
+	private TextPosition toTextPosition(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement) throws IOException
+	{
+		PDGraphicsState state = getGraphicsState();
+		Matrix ctm = state.getCurrentTransformationMatrix();
+		float fontSize = state.getTextState().getFontSize();
+		float horizontalScaling = state.getTextState().getHorizontalScaling() / 100f;
+		Matrix textMatrix = getTextMatrix();
+
+		float displacementX = displacement.getX();
+		if(font.isVertical())
+		{
+			displacementX = font.getWidth(code) / 1000;
+			TrueTypeFont ttf = null;
+			if(font instanceof PDTrueTypeFont)
+			{
+				ttf = ((PDTrueTypeFont) font).getTrueTypeFont();
+			}
+			else if(font instanceof PDType0Font)
+			{
+				PDCIDFont cidFont = ((PDType0Font) font).getDescendantFont();
+				if(cidFont instanceof PDCIDFontType2)
+				{
+					ttf = ((PDCIDFontType2) cidFont).getTrueTypeFont();
+				}
+			}
+			if(ttf!=null && ttf.getUnitsPerEm()!=1000)
+			{
+				displacementX *= 1000f / ttf.getUnitsPerEm();
+			}
+		}
+
+		float tx = displacementX * fontSize * horizontalScaling;
+		float ty = displacement.getY() * fontSize;
+		Matrix td = Matrix.getTranslateInstance(tx, ty);
+		Matrix nextTextRenderingMatrix = td.multiply(textMatrix).multiply(ctm);
+		float nextX = nextTextRenderingMatrix.getTranslateX();
+		float nextY = nextTextRenderingMatrix.getTranslateY();
+
+		float dxDisplay = nextX - textRenderingMatrix.getTranslateX();
+
+		Float fontHeight = mapFontHeight.get(font.getCOSObject());
+		if(fontHeight==null)
+		{
+			fontHeight = computeFontHeight(font);
+			mapFontHeight.put(font.getCOSObject(), fontHeight);
+		}
+		float dyDisplay = fontHeight * textRenderingMatrix.getScalingFactorY();
+
+		float glyphSpaceToTextSpaceFactor = 1 / 1000f;
+		if(font instanceof PDType3Font)
+		{
+			glyphSpaceToTextSpaceFactor = font.getFontMatrix().getScaleX();
+		}
+
+		float spaceWidthText = 0;
+		try {
+			spaceWidthText = font.getSpaceWidth() * glyphSpaceToTextSpaceFactor;
+		}
+		catch(Exception ex) {
+			logger.log(Level.WARNING, ex.getMessage(), ex);
+		}
+
+		if(Float.compare(spaceWidthText, 0)==0)
+		{
+			spaceWidthText = font.getAverageFontWidth() * glyphSpaceToTextSpaceFactor;
+			spaceWidthText *= .80f;
+		}
+		if(Float.compare(spaceWidthText, 0)==0)
+		{
+			spaceWidthText = 1.0f;
+		}
+		float spaceWidthDisplay = spaceWidthText * textRenderingMatrix.getScalingFactorX();
+
+		String unicode = font.toUnicode(code, getGlyphList());
+		if(unicode==null)
+		{
+			if(font instanceof PDSimpleFont)
+			{
+				char c = (char) code;
+				unicode = new String(new char[] { c });
+			}
+			else
+			{
+				return null;
+			}
+		}
+
+		if(actualText!=null)
+		{
+			unicode = isFirstActualTextPosition ? actualText : "";
+			isFirstActualTextPosition = false;
+		}
+
+		Matrix translatedTextRenderingMatrix;
+		if(translateMatrix==null)
+		{
+			translatedTextRenderingMatrix = textRenderingMatrix;
+		}
+		else
+		{
+			translatedTextRenderingMatrix = Matrix.concatenate(translateMatrix, textRenderingMatrix);
+			nextX -= pageSize.getLowerLeftX();
+			nextY -= pageSize.getLowerLeftY();
+		}
+
+		return new TextPosition(pageRotation, pageSize.getWidth(), pageSize.getHeight(),
+				translatedTextRenderingMatrix, nextX, nextY, Math.abs(dyDisplay), dxDisplay,
+				Math.abs(spaceWidthDisplay), unicode, new int[] { code }, font, fontSize,
+				(int)(fontSize * textMatrix.getScalingFactorX()));
+	}
+
+	@Override
+	public void beginMarkedContentSequence(COSName tag, COSDictionary properties) {
+		PDMarkedContent markedContent = PDMarkedContent.create(tag, properties);
+		dequeMarkedContents.push(markedContent);
+		actualText = markedContent.getActualText();
+		if(actualText!=null)
+		{
+			actualText = actualText.replace("\u00AD", "");
+			isFirstActualTextPosition = true;
+		}
+		super.beginMarkedContentSequence(tag, properties);
+	}
+
+	@Override
+	public void endMarkedContentSequence() {
+		PDMarkedContent markedContent = dequeMarkedContents.peek();
+		if(markedContent!=null)
+		{
+			if(markedContent.getActualText()!=null)
+				actualText = null;
+			dequeMarkedContents.pop();
+		}
+		super.endMarkedContentSequence();
+	}
+
+	/**
+	 * Same computation as PDFBox's LegacyPDFStreamEngine.computeFontHeight()
+	 */
+	private float computeFontHeight(PDFont font) throws IOException
+	{
+		BoundingBox bbox = font.getBoundingBox();
+		if(bbox.getLowerLeftY() < Short.MIN_VALUE)
+		{
+			bbox.setLowerLeftY(-(bbox.getLowerLeftY() + 65536));
+		}
+		float glyphHeight = bbox.getHeight() / 2;
+
+		PDFontDescriptor fontDescriptor = font.getFontDescriptor();
+		if(fontDescriptor!=null)
+		{
+			float capHeight = fontDescriptor.getCapHeight();
+			if(Float.compare(capHeight, 0)!=0 && (capHeight < glyphHeight || Float.compare(glyphHeight, 0)==0))
+			{
+				glyphHeight = capHeight;
+			}
+			float ascent = fontDescriptor.getAscent();
+			float descent = fontDescriptor.getDescent();
+			if(capHeight > ascent && ascent > 0 && descent < 0
+					&& ((ascent - descent) / 2 < glyphHeight || Float.compare(glyphHeight, 0)==0))
+			{
+				glyphHeight = (ascent - descent) / 2;
+			}
+		}
+
+		if(font instanceof PDType3Font)
+		{
+			return font.getFontMatrix().transformPoint(0, glyphHeight).y;
+		}
+		return glyphHeight / 1000;
+	}
+
+	private static synchronized GlyphList getGlyphList() throws IOException
+	{
+		if(glyphList==null)
+		{
+			try(InputStream in = GlyphList.class.getResourceAsStream("/org/apache/pdfbox/resources/glyphlist/additional.txt"))
+			{
+				glyphList = new GlyphList(GlyphList.getAdobeGlyphList(), in);
+			}
+		}
+		return glyphList;
+	}
+
+	//---- Images ----
+	@Override
+	public void drawImage(PDImage pdImage) throws IOException {
+		if(!isCollectImages)
+			return;
+
+		long lStartNanos = (page_metrics!=null) ? System.nanoTime() : 0;
+
+		for(ContentCollector c : listCollectors)
+		{
+			if(c.isCollectImages())
+				c.processImage(pdImage, getGraphicsState());
+		}
+
+		if(page_metrics!=null)
+			page_metrics.addElapsedNanos(Stage.IMAGE, System.nanoTime()-lStartNanos);
+	}
+
+	//---- Paths (Y-flipped to match BufferedImage coordinates) ----
+	@Override public void moveTo(float x, float y)
+	{
+		if(isCollectPaths)
+			currentPath.moveTo(x, pgHeight - y);
+	}
+
+	@Override public void lineTo(float x, float y)
+	{
+		if(isCollectPaths)
+			currentPath.lineTo(x, pgHeight - y);
+	}
+
+	@Override public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3)
+	{
+		if(isCollectPaths)
+			currentPath.curveTo(x1, pgHeight - y1, x2, pgHeight - y2, x3, pgHeight - y3);
+	}
+
+	@Override public void closePath()
+	{
+		if(isCollectPaths)
+			currentPath.closePath();
+	}
+
+	@Override public Point2D getCurrentPoint()
+	{
+		Point2D pt = isCollectPaths ? currentPath.getCurrentPoint() : null;
+		if(pt!=null)
+			pt.setLocation(pt.getX(), pgHeight - pt.getY());
+		return pt;
+	}
+
+	@Override public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3)
+	{
+		moveTo((float)p0.getX(), (float)p0.getY());
+		lineTo((float)p1.getX(), (float)p1.getY());
+		lineTo((float)p2.getX(), (float)p2.getY());
+		lineTo((float)p3.getX(), (float)p3.getY());
+		closePath();
+	}
+
+	@Override public void strokePath() { paintPath(true, false); }
+	@Override public void fillPath(int windingRule) { paintPath(false, true); }
+	@Override public void fillAndStrokePath(int windingRule) { paintPath(true, true); }
+	@Override public void endPath() { currentPath.reset(); }
+
+	private void paintPath(boolean isStroked, boolean isFilled)
+	{
+		if(!isCollectPaths)
+			return;
+
+		long lStartNanos = (page_metrics!=null) ? System.nanoTime() : 0;
+
+		for(ContentCollector c : listCollectors)
+		{
+			if(c.isCollectPaths())
+				c.processPath(currentPath, getGraphicsState(), isStroked, isFilled);
+		}
+		currentPath.reset();
+
+		if(page_metrics!=null)
+			page_metrics.addElapsedNanos(Stage.VECTOR, System.nanoTime()-lStartNanos);
+	}
+
+	@Override public void clip(int windingRule) {}
+	@Override public void shadingFill(COSName shadingName) throws IOException {}
+}
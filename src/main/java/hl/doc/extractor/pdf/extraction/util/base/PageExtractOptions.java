@@ -0,0 +1,109 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.PageMetrics;
+
+/**
+ * What to extract from a page in the single content stream pass of PageExtractUtil,
+ * and the optional per-page metrics, time budget and document image cache.
+ * <br>
+ * Default is text, image & vector without resizing, metrics, deadline or image cache.
+ */
+public class PageExtractOptions {
+
+	private boolean is_extract_text 	= true;
+	private boolean is_extract_image 	= true;
+	private boolean is_extract_vector 	= true;
+	private boolean is_resize_image 	= false;
+	//
+	private PageMetrics page_metrics 	= null;
+	private ExtractionDeadline deadline = null;
+	private DocumentImageCache image_cache = null;
+
+	public PageExtractOptions setExtractText(boolean isExtractText)
+	{
+		this.is_extract_text = isExtractText;
+		return this;
+	}
+
+	public boolean isExtractText()
+	{
+		return this.is_extract_text;
+	}
+
+	public PageExtractOptions setExtractImage(boolean isExtractImage)
+	{
+		this.is_extract_image = isExtractImage;
+		return this;
+	}
+
+	public boolean isExtractImage()
+	{
+		return this.is_extract_image;
+	}
+
+	public PageExtractOptions setExtractVector(boolean isExtractVector)
+	{
+		this.is_extract_vector = isExtractVector;
+		return this;
+	}
+
+	public boolean isExtractVector()
+	{
+		return this.is_extract_vector;
+	}
+
+	public PageExtractOptions setResizeImage(boolean isResizeImage)
+	{
+		this.is_resize_image = isResizeImage;
+		return this;
+	}
+
+	public boolean isResizeImage()
+	{
+		return this.is_resize_image;
+	}
+
+	/**
+	 * Stage timings & content counts are added to aPageMetrics, null for none
+	 */
+	public PageExtractOptions setPageMetrics(PageMetrics aPageMetrics)
+	{
+		this.page_metrics = aPageMetrics;
+		return this;
+	}
+
+	public PageMetrics getPageMetrics()
+	{
+		return this.page_metrics;
+	}
+
+	/**
+	 * Processing stops once aDeadline expires, aDeadline.isTimedOut() then tells that
+	 * only the content extracted so far is returned. Null for no time budget.
+	 */
+	public PageExtractOptions setDeadline(ExtractionDeadline aDeadline)
+	{
+		this.deadline = aDeadline;
+		return this;
+	}
+
+	public ExtractionDeadline getDeadline()
+	{
+		return this.deadline;
+	}
+
+	/**
+	 * Images already extracted from other pages of the document are taken from aImageCache,
+	 * null to decode every image placement
+	 */
+	public PageExtractOptions setImageCache(DocumentImageCache aImageCache)
+	{
+		this.image_cache = aImageCache;
+		return this;
+	}
+
+	public DocumentImageCache getImageCache()
+	{
+		return this.image_cache;
+	}
+}
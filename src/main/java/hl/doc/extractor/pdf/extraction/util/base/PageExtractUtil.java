@@ -0,0 +1,124 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.Counter;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.PageMetrics;
+import hl.doc.extractor.pdf.extraction.pojo.ExtractionMetrics.Stage;
+
+public class PageExtractUtil  {
+
+	// ---- TEXT, IMAGE & VECTOR in a single pass of the page content stream ----
+	public static Map<Type, List<ContentItem>> extractPageContent(
+			PDDocument doc, int pageIndex, Map<String, Rectangle> mapAreasOfInterest,
+			boolean isExtractText, boolean isExtractImage, boolean isExtractVector,
+			boolean isResizeImage) throws IOException {
+		return extractPageContent(doc, pageIndex, mapAreasOfInterest, new PageExtractOptions()
+				.setExtractText(isExtractText)
+				.setExtractImage(isExtractImage)
+				.setExtractVector(isExtractVector)
+				.setResizeImage(isResizeImage));
+	}
+
+	/**
+	 * Same as above, with the page metrics, time budget & document image cache of aOptions
+	 */
+	public static Map<Type, List<ContentItem>> extractPageContent(
+			PDDocument doc, int pageIndex, Map<String, Rectangle> mapAreasOfInterest,
+			PageExtractOptions aOptions) throws IOException {
+
+		boolean isExtractText 	= aOptions.isExtractText();
+		boolean isExtractImage 	= aOptions.isExtractImage();
+		boolean isExtractVector = aOptions.isExtractVector();
+		PageMetrics pageMetrics 	= aOptions.getPageMetrics();
+		ExtractionDeadline deadline = aOptions.getDeadline();
+
+		Map<Type, List<ContentItem>> mapContentItems = new HashMap<>();
+
+		PDPage page = doc.getPage(pageIndex);
+		PageContentEngine engine = new PageContentEngine(page, pageIndex + 1);
+		engine.setPageMetrics(pageMetrics);
+		engine.setDeadline(deadline);
+
+		TextContentCollector textCollector = null;
+		if(isExtractText)
+		{
+			textCollector = new TextContentCollector();
+		    if(mapAreasOfInterest!=null && mapAreasOfInterest.size()>0)
+		    {
+		    	for(String sLabel: mapAreasOfInterest.keySet())
+		    	{
+		    		textCollector.addAreaOfInterest(sLabel, mapAreasOfInterest.get(sLabel));
+		    	}
+		    }
+			engine.addCollector(textCollector);
+		}
+
+		ImageContentCollector imageCollector = null;
+		if(isExtractImage)
+		{
+			imageCollector = new ImageContentCollector(aOptions.isResizeImage(), 3);
+			imageCollector.setImageCache(aOptions.getImageCache());
+			engine.addCollector(imageCollector);
+		}
+
+		VectorContentCollector vectorCollector = null;
+		if(isExtractVector)
+		{
+			vectorCollector = new VectorContentCollector(true);
+			vectorCollector.setDeadline(deadline);
+			engine.addCollector(vectorCollector);
+		}
+
+		if(isExtractText || isExtractImage || isExtractVector)
+		{
+			engine.processPage();
+		}
+
+		mapContentItems.put(Type.TEXT,
+				textCollector!=null ? textCollector.getContentItems() : new ArrayList<>());
+		mapContentItems.put(Type.IMAGE,
+				imageCollector!=null ? imageCollector.getContentItems() : new ArrayList<>());
+
+		long lStartNanos = (pageMetrics!=null) ? System.nanoTime() : 0;
+		// paths are stitched into shapes here
+		mapContentItems.put(Type.VECTOR,
+				vectorCollector!=null ? vectorCollector.getContentItems() : new ArrayList<>());
+
+		if(pageMetrics!=null)
+		{
+			pageMetrics.addElapsedNanos(Stage.VECTOR, System.nanoTime()-lStartNanos);
+			pageMetrics.increment(Counter.TEXT_LINES, mapContentItems.get(Type.TEXT).size());
+			if(imageCollector!=null)
+			{
+				pageMetrics.increment(Counter.IMAGES_DECODED, imageCollector.getImagesDecoded());
+				pageMetrics.increment(Counter.IMAGES_SKIPPED, imageCollector.getImagesSkipped());
+				pageMetrics.increment(Counter.IMAGES_REUSED, imageCollector.getImagesReused());
+			}
+			if(vectorCollector!=null)
+			{
+				long lSegments = 0;
+				for(Path2D path : vectorCollector.getPaths())
+				{
+					lSegments += VectorExtractUtil.countSegment(path);
+				}
+				pageMetrics.increment(Counter.VECTOR_PATHS, vectorCollector.getPaths().size());
+				pageMetrics.increment(Counter.VECTOR_SEGMENTS, lSegments);
+				pageMetrics.increment(Counter.VECTOR_SHAPES, mapContentItems.get(Type.VECTOR).size());
+			}
+		}
+
+		return mapContentItems;
+	}
+}
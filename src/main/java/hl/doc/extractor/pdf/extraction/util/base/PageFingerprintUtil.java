@@ -0,0 +1,319 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+
+public class PageFingerprintUtil  {
+
+	/**
+	 * SHA-256 of everything the page extraction depends on : the page boxes & rotation,
+	 * the content stream bytes and the resources it uses (fonts, images, forms ...).
+	 * <br>
+	 * Only the resources named by the content stream are hashed, so that adding a resource to
+	 * a resource dictionary shared by all pages does not change the other pages. Streams other
+	 * than forms (images, font files, CMaps ...) are hashed by their raw encoded bytes, without
+	 * decoding them.
+	 * <br>
+	 * Identical pages have the same fingerprint even when they moved to another page number.
+	 */
+	public static String getPageFingerprint(PDPage aPage) throws IOException
+	{
+		return getPageFingerprint(aPage, new HashMap<>());
+	}
+
+	/**
+	 * Same as above, aStreamDigests holds the digest of the indirect streams already hashed
+	 * for other pages of the same document (e.g. shared fonts & images), keyed by object key.
+	 * It must not be shared by different documents.
+	 */
+	public static String getPageFingerprint(PDPage aPage, Map<COSObjectKey, String> aStreamDigests) throws IOException
+	{
+		MessageDigest digest = null;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+
+		update(digest, "mediabox", toString(aPage.getMediaBox()));
+		update(digest, "cropbox", toString(aPage.getCropBox()));
+		update(digest, "rotate", String.valueOf(aPage.getRotation()));
+
+		byte[] content = new byte[0];
+		if(aPage.hasContents())
+		{
+			try(InputStream in = aPage.getContents())
+			{
+				content = in.readAllBytes();
+			}
+		}
+
+		// inherited resources are resolved by getResources()
+		COSDictionary resources = aPage.getResources()!=null ? aPage.getResources().getCOSObject() : null;
+		updateContent(digest, content, resources, new IdentityHashMap<>(), aStreamDigests);
+
+		StringBuilder sb = new StringBuilder();
+		for(byte b : digest.digest())
+		{
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static String toString(PDRectangle aRect)
+	{
+		return aRect==null ? "" : aRect.getLowerLeftX()+","+aRect.getLowerLeftY()+","+aRect.getUpperRightX()+","+aRect.getUpperRightY();
+	}
+
+	private static void update(MessageDigest aDigest, String aTag, String aValue)
+	{
+		aDigest.update(aTag.getBytes(StandardCharsets.UTF_8));
+		aDigest.update((byte)':');
+		aDigest.update(aValue.getBytes(StandardCharsets.UTF_8));
+		aDigest.update((byte)';');
+	}
+
+	/**
+	 * Content stream bytes followed by the resources it uses, in the order of first use
+	 */
+	private static void updateContent(MessageDigest aDigest, byte[] aContent, COSDictionary aResources,
+			Map<COSBase, Integer> aVisited, Map<COSObjectKey, String> aStreamDigests) throws IOException
+	{
+		aDigest.update(aContent);
+		aDigest.update((byte)';');
+
+		if(aResources==null)
+			return;
+
+		for(List<COSName> listUsed : getUsedResources(aContent))
+		{
+			COSName category = listUsed.get(0);
+			COSName name = listUsed.get(1);
+			update(aDigest, category.getName(), name.getName());
+
+			COSBase res = null;
+			COSBase resCategory = aResources.getDictionaryObject(category);
+			if(resCategory instanceof COSDictionary)
+			{
+				res = ((COSDictionary) resCategory).getDictionaryObject(name);
+			}
+			updateCOS(aDigest, res, aResources, aVisited, aStreamDigests);
+		}
+	}
+
+	/**
+	 * Resource category & name of the resources used by the operators of the content stream
+	 */
+	private static Set<List<COSName>> getUsedResources(byte[] aContent) throws IOException
+	{
+		Set<List<COSName>> setUsed = new LinkedHashSet<>();
+		List<COSBase> listOperands = new ArrayList<>();
+
+		PDFStreamParser parser = new PDFStreamParser(aContent);
+		Object token = null;
+		while((token = parser.parseNextToken())!=null)
+		{
+			if(!(token instanceof Operator))
+			{
+				if(token instanceof COSBase)
+					listOperands.add((COSBase) token);
+				continue;
+			}
+
+			Operator op = (Operator) token;
+			COSName category = null;
+			COSBase operand = null;
+			switch(op.getName())
+			{
+				case "Tf":
+					category = COSName.FONT;
+					operand = listOperands.isEmpty() ? null : listOperands.get(0);
+					break;
+				case "Do":
+					category = COSName.XOBJECT;
+					operand = listOperands.isEmpty() ? null : listOperands.get(0);
+					break;
+				case "gs":
+					category = COSName.EXT_G_STATE;
+					operand = listOperands.isEmpty() ? null : listOperands.get(0);
+					break;
+				case "sh":
+					category = COSName.SHADING;
+					operand = listOperands.isEmpty() ? null : listOperands.get(0);
+					break;
+				case "cs":
+				case "CS":
+					category = COSName.COLORSPACE;
+					operand = listOperands.isEmpty() ? null : listOperands.get(0);
+					break;
+				case "scn":
+				case "SCN":
+					// pattern name after the color components
+					category = COSName.PATTERN;
+					operand = listOperands.isEmpty() ? null : listOperands.get(listOperands.size()-1);
+					break;
+				case "BDC":
+				case "DP":
+					category = COSName.PROPERTIES;
+					operand = listOperands.size()<2 ? null : listOperands.get(1);
+					break;
+				case "BI":
+					category = COSName.COLORSPACE;
+					if(op.getImageParameters()!=null)
+						operand = op.getImageParameters().getDictionaryObject(COSName.CS, COSName.COLORSPACE);
+					break;
+				default:
+					break;
+			}
+
+			if(operand instanceof COSName)
+			{
+				setUsed.add(List.of(category, (COSName) operand));
+			}
+			listOperands.clear();
+		}
+		return setUsed;
+	}
+
+	/**
+	 * SHA-256 of the raw bytes of the stream, once per indirect stream of the document
+	 */
+	private static String getStreamDigest(COSStream aStream, Map<COSObjectKey, String> aStreamDigests) throws IOException
+	{
+		COSObjectKey key = aStream.getKey();
+		String sDigest = (key!=null) ? aStreamDigests.get(key) : null;
+		if(sDigest==null)
+		{
+			MessageDigest digest = null;
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e);
+			}
+
+			byte[] buffer = new byte[16*1024];
+			int iRead = 0;
+			try(InputStream in = aStream.createRawInputStream())
+			{
+				while((iRead = in.read(buffer))>0)
+				{
+					digest.update(buffer, 0, iRead);
+				}
+			}
+			sDigest = HexFormat.of().formatHex(digest.digest());
+			if(key!=null)
+				aStreamDigests.put(key, sDigest);
+		}
+		return sDigest;
+	}
+
+	private static void updateCOS(MessageDigest aDigest, COSBase aCOS, COSDictionary aResources,
+			Map<COSBase, Integer> aVisited, Map<COSObjectKey, String> aStreamDigests) throws IOException
+	{
+		if(aCOS instanceof COSObject)
+		{
+			aCOS = ((COSObject) aCOS).getObject();
+		}
+
+		if(aCOS==null)
+		{
+			update(aDigest, "null", "");
+			return;
+		}
+
+		if(aCOS instanceof COSDictionary)
+		{
+			// shared resources (e.g. fonts) are only hashed once per page
+			Integer iVisitedSeq = aVisited.get(aCOS);
+			if(iVisitedSeq!=null)
+			{
+				update(aDigest, "ref", String.valueOf(iVisitedSeq));
+				return;
+			}
+			aVisited.put(aCOS, aVisited.size());
+
+			COSDictionary dict = (COSDictionary) aCOS;
+			boolean isContentStream = (aCOS instanceof COSStream)
+					&& (COSName.FORM.equals(dict.getCOSName(COSName.SUBTYPE)) || dict.containsKey(COSName.RESOURCES));
+
+			List<COSName> listKeys = new ArrayList<>(dict.keySet());
+			Collections.sort(listKeys);
+			update(aDigest, "dict", String.valueOf(listKeys.size()));
+			for(COSName key : listKeys)
+			{
+				// do not walk up the page tree
+				if(COSName.PARENT.equals(key))
+					continue;
+				// only the resources used by the content of a form are hashed, see below
+				if(isContentStream && COSName.RESOURCES.equals(key))
+					continue;
+				update(aDigest, "key", key.getName());
+				updateCOS(aDigest, dict.getItem(key), aResources, aVisited, aStreamDigests);
+			}
+
+			if(isContentStream)
+			{
+				// forms, tiling patterns ... a form without resources uses the ones of its parent
+				COSBase formResources = dict.getDictionaryObject(COSName.RESOURCES);
+				byte[] content = null;
+				try(InputStream in = ((COSStream) aCOS).createInputStream())
+				{
+					content = in.readAllBytes();
+				}
+				updateContent(aDigest, content,
+						(formResources instanceof COSDictionary) ? (COSDictionary) formResources : aResources,
+						aVisited, aStreamDigests);
+			}
+			else if(aCOS instanceof COSStream)
+			{
+				// images, font files, CMaps ... raw (encoded) bytes, no need to decode them
+				update(aDigest, "stream", getStreamDigest((COSStream) aCOS, aStreamDigests));
+			}
+		}
+		else if(aCOS instanceof COSArray)
+		{
+			COSArray arr = (COSArray) aCOS;
+			update(aDigest, "array", String.valueOf(arr.size()));
+			for(int i=0; i<arr.size(); i++)
+			{
+				updateCOS(aDigest, arr.get(i), aResources, aVisited, aStreamDigests);
+			}
+		}
+		else if(aCOS instanceof COSString)
+		{
+			aDigest.update(((COSString) aCOS).getBytes());
+			aDigest.update((byte)';');
+		}
+		else
+		{
+			// COSName, COSInteger, COSFloat, COSBoolean, COSNull
+			update(aDigest, aCOS.getClass().getSimpleName(), aCOS.toString());
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.RenderDestination;
+
+/**
+ * Rendered pages of a document, shared by page preview, layout detection and the
+ * rendering of heavy vectors, with a single PDFRenderer for the document.
+ * <br>
+ * Size-bounded, the least recently used pages are evicted once the total size of
+ * the cached bitmaps goes beyond the limit. A page requested at a lower DPI than a
+ * cached one is downscaled from it instead of being rendered again, unless the exact
+ * rendering is requested (extraction output must not depend on earlier previews).
+ * <br>
+ * Cached images are shared, callers must not draw on them (use a copy instead).
+ */
+public class PageRenderCache {
+
+	public static long DEFAULT_MAX_CACHE_BYTES = 64L * 1024 * 1024;
+
+	private final PDDocument pdf_doc;
+	private final PDFRenderer pdf_renderer;
+	private final long max_cache_bytes;
+
+	// access-ordered, eldest entry is the least recently used
+	private final LinkedHashMap<Long, BufferedImage> mapPageImages = new LinkedHashMap<>(16, 0.75f, true);
+	private long total_bytes = 0;
+	// cached pages downscaled from a higher DPI, not served when the exact rendering is requested
+	private final Set<Long> setDownscaled = new HashSet<>();
+
+	private long render_count 		= 0;
+	private long hit_count 			= 0;
+	private long downscale_count 	= 0;
+
+	public PageRenderCache(PDDocument aDoc)
+	{
+		this(aDoc, DEFAULT_MAX_CACHE_BYTES);
+	}
+
+	/**
+	 * @param aMaxCacheBytes 0 to only share the PDFRenderer without caching any page
+	 */
+	public PageRenderCache(PDDocument aDoc, long aMaxCacheBytes)
+	{
+		this.pdf_doc = aDoc;
+		this.pdf_renderer = new PDFRenderer(aDoc);
+		this.max_cache_bytes = aMaxCacheBytes;
+	}
+
+	/**
+	 * Page rendered as RGB at aDPI, from cache when available
+	 */
+	public BufferedImage renderPage(int iPageNo, float aDPI) throws IOException
+	{
+		return renderPage(iPageNo, aDPI, true);
+	}
+
+	/**
+	 * Same as above, isAllowDownscale false to always get the page as rendered at aDPI
+	 * (e.g. layout detection), never one downscaled from a higher DPI rendering.
+	 */
+	public synchronized BufferedImage renderPage(int iPageNo, float aDPI, boolean isAllowDownscale) throws IOException
+	{
+		Long lKey = toKey(iPageNo, aDPI);
+		BufferedImage img = mapPageImages.get(lKey);
+		if(img!=null && (isAllowDownscale || !setDownscaled.contains(lKey)))
+		{
+			hit_count++;
+			return img;
+		}
+
+		// smallest cached DPI above the requested one
+		float fSourceDPI = Float.MAX_VALUE;
+		BufferedImage imgSource = null;
+		for(Map.Entry<Long, BufferedImage> e : mapPageImages.entrySet())
+		{
+			if(!isAllowDownscale)
+				break;
+			float fDPI = Float.intBitsToFloat((int)(e.getKey().longValue()));
+			if(toPageNo(e.getKey())==iPageNo && fDPI>aDPI && fDPI<fSourceDPI)
+			{
+				fSourceDPI = fDPI;
+				imgSource = e.getValue();
+			}
+		}
+
+		if(imgSource!=null)
+		{
+			double dScale = aDPI / fSourceDPI;
+			img = downscale(imgSource,
+					(int) Math.max(1, Math.floor(imgSource.getWidth() * dScale)),
+					(int) Math.max(1, Math.floor(imgSource.getHeight() * dScale)));
+			// refresh the source page as the most recently used
+			mapPageImages.get(toKey(iPageNo, fSourceDPI));
+			downscale_count++;
+			put(lKey, img, true);
+		}
+		else
+		{
+			img = this.pdf_renderer.renderImageWithDPI(iPageNo-1, aDPI, ImageType.RGB);
+			render_count++;
+			put(lKey, img, false);
+		}
+		return img;
+	}
+
+	/**
+	 * Only the area of interest (in 72 dpi page coordinates, top-left origin) is rendered
+	 * into an image of the area size, unless the page is already cached at aDPI.
+	 * <br>
+	 * Returns null when the area is not within the page.
+	 */
+	public synchronized BufferedImage renderPageArea(int iPageNo, Rectangle2D aROI, float aDPI) throws IOException
+	{
+		float fScale = aDPI / 72f;
+		int iX = (int)(aROI.getX() * fScale);
+		int iY = (int)(aROI.getY() * fScale);
+		int iW = (int)(aROI.getWidth() * fScale);
+		int iH = (int)(aROI.getHeight() * fScale);
+
+		// same page size as PDFRenderer.renderImage()
+		PDPage page = this.pdf_doc.getPage(iPageNo-1);
+		PDRectangle cropBox = page.getCropBox();
+		boolean isRotated = (page.getRotation() % 180)!=0;
+		int iPageW = (int) Math.max(Math.floor((isRotated ? cropBox.getHeight() : cropBox.getWidth()) * fScale), 1);
+		int iPageH = (int) Math.max(Math.floor((isRotated ? cropBox.getWidth() : cropBox.getHeight()) * fScale), 1);
+
+		if(iX<0 || iY<0 || iW<=0 || iH<=0 || iX+iW>iPageW || iY+iH>iPageH)
+			return null;
+
+		Long lKey = toKey(iPageNo, aDPI);
+		BufferedImage imgPage = mapPageImages.get(lKey);
+		if(imgPage!=null && !setDownscaled.contains(lKey))
+		{
+			hit_count++;
+			return copy(imgPage.getSubimage(iX, iY, iW, iH));
+		}
+
+		BufferedImage img = new BufferedImage(iW, iH, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = img.createGraphics();
+		try {
+			g2d.setBackground(Color.WHITE);
+			g2d.clearRect(0, 0, iW, iH);
+			// shift the area to the image origin, everything outside is clipped
+			g2d.translate(-iX, -iY);
+			// same optional content as renderImageWithDPI(), which renders for EXPORT
+			this.pdf_renderer.renderPageToGraphics(iPageNo-1, g2d, fScale, fScale, RenderDestination.EXPORT);
+		}
+		finally {
+			g2d.dispose();
+		}
+		render_count++;
+		return img;
+	}
+
+	public synchronized void clear()
+	{
+		mapPageImages.clear();
+		setDownscaled.clear();
+		total_bytes = 0;
+	}
+
+	public PDFRenderer getPDFRenderer()
+	{
+		return this.pdf_renderer;
+	}
+
+	public synchronized long getRenderCount()
+	{
+		return render_count;
+	}
+
+	public synchronized long getHitCount()
+	{
+		return hit_count;
+	}
+
+	public synchronized long getDownscaleCount()
+	{
+		return downscale_count;
+	}
+
+	public synchronized long getTotalBytes()
+	{
+		return total_bytes;
+	}
+
+	private void put(Long aKey, BufferedImage aImage, boolean isDownscaled)
+	{
+		// a downscaled page is replaced by its exact rendering
+		BufferedImage imgOld = mapPageImages.remove(aKey);
+		if(imgOld!=null)
+			total_bytes -= sizeOf(imgOld);
+		setDownscaled.remove(aKey);
+
+		long lBytes = sizeOf(aImage);
+		if(lBytes>this.max_cache_bytes)
+			return;
+
+		mapPageImages.put(aKey, aImage);
+		if(isDownscaled)
+			setDownscaled.add(aKey);
+		total_bytes += lBytes;
+
+		Iterator<Map.Entry<Long, BufferedImage>> iter = mapPageImages.entrySet().iterator();
+		while(total_bytes>this.max_cache_bytes && iter.hasNext())
+		{
+			Map.Entry<Long, BufferedImage> e = iter.next();
+			total_bytes -= sizeOf(e.getValue());
+			setDownscaled.remove(e.getKey());
+			iter.remove();
+		}
+	}
+
+	private static BufferedImage downscale(BufferedImage aImage, int aWidth, int aHeight)
+	{
+		int iType = aImage.getType()!=BufferedImage.TYPE_CUSTOM ? aImage.getType() : BufferedImage.TYPE_INT_ARGB;
+		BufferedImage img = new BufferedImage(aWidth, aHeight, iType);
+		Graphics2D g2d = img.createGraphics();
+		try {
+			g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g2d.drawImage(aImage, 0, 0, aWidth, aHeight, null);
+		}
+		finally {
+			g2d.dispose();
+		}
+		return img;
+	}
+
+	private static BufferedImage copy(BufferedImage aImage)
+	{
+		BufferedImage img = new BufferedImage(aImage.getWidth(), aImage.getHeight(), aImage.getType());
+		aImage.copyData(img.getRaster());
+		return img;
+	}
+
+	private static long sizeOf(BufferedImage aImage)
+	{
+		return (long) aImage.getWidth() * aImage.getHeight() * 4;
+	}
+
+	private static Long toKey(int iPageNo, float aDPI)
+	{
+		return ((long) iPageNo << 32) | (Float.floatToIntBits(aDPI) & 0xFFFFFFFFL);
+	}
+
+	private static int toPageNo(Long aKey)
+	{
+		return (int) (aKey.longValue() >>> 32);
+	}
+}
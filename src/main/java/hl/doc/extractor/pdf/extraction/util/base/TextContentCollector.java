@@ -0,0 +1,418 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.text.TextPosition;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
+
+/**
+ * Groups glyphs into baseline-aligned text lines.
+ * Shared by {@link GroupedTextStripper} and {@link PageContentEngine}.
+ */
+public class TextContentCollector implements ContentCollector {
+
+    List<ContentItem> contentItems = new ArrayList<>();
+    List<TextPosition> currentLine = new ArrayList<>();
+    int iExtractSeq = 1;
+    int iPageNo = -1;
+
+    private Map<String, Rectangle> mapAreasOfInterest = null;
+    // built on first use, reset when the areas change
+    private AreaOfInterestIndex areaIndex = null;
+    private int[] areaMatches = null;
+
+    // reused by each line, to keep the garbage per line to the text item itself
+    private float[] baselines = new float[64];
+    private final StringBuilder lineBuilder = new StringBuilder();
+    private final Map<PDFont, FontStyle> mapFontStyles = new IdentityHashMap<>();
+    private Map<String, List<ContentItem>> mapContentItemByAreas = new HashMap<>();
+
+    @Override
+    public boolean isCollectGlyphs() {
+    	return true;
+    }
+
+    @Override
+    public List<ContentItem> getContentItems() {
+    	return contentItems;
+    }
+
+    /**
+     * Text lines collected since the last call, with extract_seq restarting from 1
+     * so that each page of a range is numbered as if it was extracted on its own.
+     */
+    public List<ContentItem> takeContentItems() {
+    	List<ContentItem> listItems = contentItems;
+    	contentItems = new ArrayList<>();
+    	iExtractSeq = 1;
+    	return listItems;
+    }
+
+    private String getCommonFontStyle(List<TextPosition> aLineText)
+    {
+        if(aLineText==null || aLineText.size()==0)
+            return null;
+
+        PDFont firstFont     = null;
+        PDFont lastFont     = null;
+
+        TextPosition textFirst = null;
+        TextPosition textLast = null;
+
+        int iListSize = aLineText.size()-1;
+        //search first character
+        for(int i=0; i<=iListSize; i++)
+        {
+            if(firstFont==null)
+            {
+                textFirst = aLineText.get(i);
+                if(hasVisibleChar(textFirst.getUnicode()))
+                {
+                    firstFont = textFirst.getFont();
+                }
+            }
+            if(lastFont==null)
+            {
+                textLast = aLineText.get(iListSize-i);
+                if(hasVisibleChar(textLast.getUnicode()))
+                {
+                    lastFont = textLast.getFont();
+                }
+            }
+
+            if(lastFont!=null && firstFont!=null)
+                break;
+        }
+
+        if(firstFont!=null && lastFont!=null)
+        {
+            FontStyle styleFirst = getFontStyle(firstFont);
+            String sFirstFontName = styleFirst.font_name;
+
+            if(sFirstFontName!=null)
+            {
+                if(sFirstFontName.equals(getFontStyle(lastFont).font_name))
+                    return styleFirst.toStyle(textFirst.getFontSizeInPt());
+            }
+            else if(textFirst.getFontSizeInPt() == textLast.getFontSizeInPt())
+            {
+                return styleFirst.toStyle(textFirst.getFontSizeInPt());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Font name without the random subset prefix (e.g. ABCDEF+), done once per font
+     */
+    private FontStyle getFontStyle(PDFont aFont)
+    {
+    	FontStyle style = mapFontStyles.get(aFont);
+    	if(style==null)
+    	{
+    		String sFontName = aFont.getName();
+    		//Remove custom random font name prefix
+    		if (sFontName!=null && sFontName.contains("+")) {
+    			sFontName = sFontName.substring(sFontName.indexOf("+") + 1);
+    		}
+    		style = new FontStyle(sFontName);
+    		mapFontStyles.put(aFont, style);
+    	}
+    	return style;
+    }
+
+    /**
+     * Style string of a font, e.g. "ArialMT (16.0)", reused while the font size stays the same
+     */
+    private static class FontStyle
+    {
+    	private final String font_name;
+    	private float last_size = Float.NaN;
+    	private String last_style = null;
+
+    	FontStyle(String aFontName)
+    	{
+    		this.font_name = aFontName;
+    	}
+
+    	String toStyle(float aFontSizeInPt)
+    	{
+    		if(last_style==null || Float.compare(last_size, aFontSizeInPt)!=0)
+    		{
+    			last_size = aFontSizeInPt;
+    			last_style = (font_name!=null ? font_name : "unknown")+" ("+aFontSizeInPt+")";
+    		}
+    		return last_style;
+    	}
+    }
+
+    // same as String.trim().length()>0, without creating a new string
+    private static boolean hasVisibleChar(CharSequence aText)
+    {
+    	for(int i=0; i<aText.length(); i++)
+    	{
+    		if(aText.charAt(i) > ' ')
+    			return true;
+    	}
+    	return false;
+    }
+
+    @Override
+    public void startPage(PDPage aPage, int aPageNo) {
+    	this.iPageNo = aPageNo;
+    }
+
+    @Override
+    public void processGlyph(TextPosition text) {
+        // --- FIX: Filter by Multiple Regions of Interest Map ---
+        if (mapAreasOfInterest!=null && !mapAreasOfInterest.isEmpty()) {
+            double x = text.getXDirAdj();
+            double y = text.getYDirAdj();
+
+            // If the character doesn't fall into any defined region, discard it
+            if (!getAreaIndex().isInAnyArea(x, y)) {
+                return;
+            }
+        }
+
+        if (currentLine.isEmpty()) {
+            currentLine.add(text);
+            return;
+        }
+
+        TextPosition last = currentLine.get(currentLine.size() - 1);
+
+	     // --- FIX 1: Baseline-based grouping to handle superscripts/subscripts ---
+	     // Use getYDirAdj() instead of getTextMatrix().getTranslateY() to automatically account for page rotation
+	     float baselineLast = last.getYDirAdj();
+	     float baselineCurrent = text.getYDirAdj();
+
+	     float hLast = last.getHeightDir();
+	     float hCurrent = text.getHeightDir();
+
+	     // relative tolerance based on the larger font height
+	     float tolerance = Math.max(hLast, hCurrent) * 0.8f;
+
+	     if (Math.abs(baselineLast - baselineCurrent) < tolerance) {
+	         currentLine.add(text);
+	     } else {
+	         addBoundingBox(currentLine);
+	         currentLine.clear();
+	         currentLine.add(text);
+	     }
+    }
+
+    public Rectangle getAreaOfInterest(String aAreaName)
+    {
+    	if(this.mapAreasOfInterest!=null)
+    	{
+    		return this.mapAreasOfInterest.get(aAreaName);
+    	}
+    	return null;
+    }
+
+    private AreaOfInterestIndex getAreaIndex()
+    {
+    	if(this.areaIndex==null)
+    	{
+    		this.areaIndex = new AreaOfInterestIndex(this.mapAreasOfInterest);
+    		this.areaMatches = new int[this.areaIndex.getAreaCount()];
+    	}
+    	return this.areaIndex;
+    }
+
+    public void clearAreaOfInterest()
+    {
+    	this.areaIndex = null;
+    	if(this.mapAreasOfInterest!=null)
+    	{
+    		this.mapAreasOfInterest.clear();
+    	}
+    	else
+    	{
+    		this.mapAreasOfInterest = new HashMap<>();
+    	}
+    }
+
+    public boolean addAreaOfInterest(String aAreaName, Rectangle aAreaRect)
+    {
+        if(aAreaName!=null && aAreaRect!=null)
+        {
+        	if(this.mapAreasOfInterest!=null)
+        	{
+        		this.areaIndex = null;
+        		return this.mapAreasOfInterest.put(aAreaName, aAreaRect)!=null;
+        	}
+        }
+        return false;
+    }
+
+    /**
+     * k-th smallest of the first aSize values (same as the k-th of the sorted values),
+     * the values are reordered in place
+     */
+    private static float selectKth(float[] aValues, int aSize, int k)
+    {
+        int iLeft = 0, iRight = aSize - 1;
+        while (iLeft < iRight) {
+            float pivot = aValues[(iLeft + iRight) >>> 1];
+            int i = iLeft, j = iRight;
+            while (i <= j) {
+                while (Float.compare(aValues[i], pivot) < 0) i++;
+                while (Float.compare(aValues[j], pivot) > 0) j--;
+                if (i <= j) {
+                    float tmp = aValues[i];
+                    aValues[i] = aValues[j];
+                    aValues[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) iRight = j;
+            else if (k >= i) iLeft = i;
+            else break;
+        }
+        return aValues[k];
+    }
+
+    @Override
+    public void endPage(PDPage page) {
+        if (!currentLine.isEmpty()) {
+            addBoundingBox(currentLine);
+            currentLine.clear();
+        }
+    }
+
+    private void addBoundingBox(List<TextPosition> line) {
+        if (line.isEmpty()) return;
+
+        // --- 1) Compute main baseline (median) and full line height ---
+        int iSize = line.size();
+        if (baselines.length < iSize) {
+            baselines = new float[Math.max(iSize, baselines.length * 2)];
+        }
+        float maxHeight = 0;
+
+        for (int i = 0; i < iSize; i++) {
+            TextPosition t = line.get(i);
+            baselines[i] = t.getYDirAdj();
+            maxHeight = Math.max(maxHeight, t.getHeightDir());
+        }
+
+        float mainBaseline = selectKth(baselines, iSize, iSize / 2);
+
+        // --- 2) Bounding box extremes ---
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = 0, maxY = 0;
+        StringBuilder sb = lineBuilder;
+        sb.setLength(0);
+
+        // Track the horizontal end position of the previous character
+        float lastXEnd = -1f;
+
+        for (TextPosition t : line) {
+            float x = t.getXDirAdj();
+            float w = t.getWidthDirAdj();
+
+            // --- Detect missing word spaces using horizontal gaps ---
+            if (lastXEnd != -1f) {
+                float gap = x - lastXEnd;
+
+                // Fallback to a sensible default if the font doesn't specify a space width
+                float spaceWidthThreshold = t.getWidthOfSpace();
+                if (spaceWidthThreshold <= 0) {
+                    spaceWidthThreshold = t.getWidthDirAdj() * 0.5f;
+                } else {
+                    spaceWidthThreshold = spaceWidthThreshold * 0.5f; // 50% of a standard space
+                }
+
+                // If the gap is wide enough and the text doesn't already end/start with a space
+                if (gap > spaceWidthThreshold && sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ' && !t.getUnicode().startsWith(" ")) {
+                    sb.append(" ");
+                }
+            }
+
+            // --- 3) NORMALIZED baseline for bounding box only ---
+            float normalizedBaseline = mainBaseline;
+
+            // --- 4) NORMALIZED height for bounding box only ---
+            float normalizedHeight = maxHeight;
+
+            float yTop = normalizedBaseline - normalizedHeight;
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, yTop);
+            maxX = Math.max(maxX, x + w);
+            maxY = Math.max(maxY, normalizedBaseline);
+
+            sb.append(t.getUnicode());
+
+            // Update the end pointer for the next character comparison
+            lastXEnd = x + w;
+        }
+
+        // --- OPTION 1 FIX: Handle line breaks ---
+        if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+            sb.append(' ');
+        }
+        String sData = sb.toString();
+
+        String sFormat = null;
+        if(hasVisibleChar(sb))
+        {
+            sFormat = getCommonFontStyle(line);
+        }
+
+        double dX = minX;
+        double dY = minY;
+        double dW = maxX - minX;
+        double dH = maxY - minY;
+
+        if(dX < 0) dX = 0;
+        if(dY < 0) dY = 0;
+
+        Rectangle2D rect2D = new Rectangle2D.Double(dX, dY, dW, dH);
+
+        ContentItem textItem = new ContentItem(Type.TEXT, sData, iPageNo, rect2D);
+        textItem.setExtract_seq(iExtractSeq++);
+        textItem.setContentFormat(sFormat);
+
+        if(mapAreasOfInterest!=null)
+        {
+        	AreaOfInterestIndex index = getAreaIndex();
+        	int iMatches = index.getContainingAreas(
+        			rect2D.getX(), rect2D.getY(),
+        			rect2D.getWidth(), rect2D.getHeight(), areaMatches);
+        	for(int i=0; i<iMatches; i++)
+        	{
+        		String sAreaName = index.getAreaName(areaMatches[i]);
+        		textItem.assocLayoutArea(sAreaName);
+        		//
+        		List<ContentItem> listItems = mapContentItemByAreas.get(sAreaName);
+        		if(listItems==null)
+        			listItems = new ArrayList<>();
+        		listItems.add(textItem);
+        	}
+
+        	if(textItem.assocLayoutAreasAsString().length()>0)
+        	{
+        		contentItems.add(textItem);
+        	}
+        }
+        else
+        {
+        	contentItems.add(textItem);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.awt.Rectangle;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -22,10 +23,51 @@ public class TextExtractUtil  {
 	public static List<ContentItem> extractTextContentByAreas(
 			PDDocument doc, int pageIndex, Map<String, Rectangle> mapAreasOfInterest) throws IOException {
 
+	    GroupedTextStripper stripper = newTextStripper(pageIndex, pageIndex, mapAreasOfInterest);
+	    return stripper.extractContentItems(doc);
+	}
+	
+	/**
+	 * Text lines of pages startPageIndex to endPageIndex (inclusive) keyed by page no, 
+	 * same as extractTextContentByAreas() on each page but with a single stripper run over the range.
+	 */
+	public static Map<Integer, List<ContentItem>> extractTextContentByPages(
+			PDDocument doc, int startPageIndex, int endPageIndex, Map<String, Rectangle> mapAreasOfInterest) throws IOException {
+		
+		Map<Integer, List<ContentItem>> mapPageItems = new LinkedHashMap<>();
+		for(int i=startPageIndex; i<=endPageIndex; i++)
+		{
+			// pages without content stream
+			mapPageItems.put(i + 1, new ArrayList<>());
+		}
+		
+		extractTextContentByPages(doc, startPageIndex, endPageIndex, mapAreasOfInterest, 
+				(iPageNo, listPageItems) -> {
+					mapPageItems.put(iPageNo, listPageItems);
+					return true;
+				});
+		return mapPageItems;
+	}
+	
+	/**
+	 * Text lines handed to aConsumer at the end of each page, in page order
+	 */
+	public static void extractTextContentByPages(
+			PDDocument doc, int startPageIndex, int endPageIndex, Map<String, Rectangle> mapAreasOfInterest,
+			GroupedTextStripper.PageTextConsumer aConsumer) throws IOException {
+		
+		GroupedTextStripper stripper = newTextStripper(startPageIndex, endPageIndex, mapAreasOfInterest);
+		stripper.extractContentItemsByPage(doc, aConsumer);
+	}
+	
+	private static GroupedTextStripper newTextStripper(
+			int startPageIndex, int endPageIndex, Map<String, Rectangle> mapAreasOfInterest) throws IOException {
+		
 	    GroupedTextStripper stripper = new GroupedTextStripper();
-	    stripper.setSortByPosition(true);
-	    stripper.setStartPage(pageIndex + 1);
-	    stripper.setEndPage(pageIndex + 1);
+	    // only our text lines are used, not the text of PDFTextStripper
+	    stripper.setPositionsOnly(true);
+	    stripper.setStartPage(startPageIndex + 1);
+	    stripper.setEndPage(endPageIndex + 1);
 	    
 	    if(mapAreasOfInterest!=null && mapAreasOfInterest.size()>0)
 	    {
@@ -35,16 +77,7 @@ public class TextExtractUtil  {
 	    		stripper.addAreaOfInterest(sLabel, rect);
 	    	}
 	    }
-	    stripper.getText(doc);
-	    return stripper.contentItems;
-	}
-	
-	// ---- Helper function to count words in a line ----
-	private static int countWords(String text)
-	{
-		if(text == null || text.trim().length() == 0)
-			return 0;
-		return text.trim().split("\\s+").length;
+	    return stripper;
 	}
 	
 	public static List<ContentItem> groupTextByParagraph(List<ContentItem> aTextItems)
@@ -67,20 +100,29 @@ public class TextExtractUtil  {
 	    int iSeqNo = 1;
 	    ContentItem prevText = null;
 	    
+	    // text of prevText and its word count / wide gap state, updated as lines are appended
+	    StringBuilder sbParagraph 		= new StringBuilder();
+	    ParagraphScanner paragraph 		= new ParagraphScanner();
+	    ParagraphScanner paragraphNext 	= new ParagraphScanner();
+	    boolean isParagraphChanged 		= false;
+	    
 	    for (ContentItem curText : aTextItems)
 	    {
 	        if (prevText == null)
 	        {
 	            prevText = curText;
+	            isParagraphChanged = startParagraph(prevText, sbParagraph, paragraph);
 	            continue;
 	        }
 	        
 	        // 1. Check different font styles
 	        if (isMatchFontStyle && !prevText.getContentFormat().equalsIgnoreCase(curText.getContentFormat()))
 	        {
+	            endParagraph(prevText, sbParagraph, isParagraphChanged);
 	            prevText.setExtract_seq(iSeqNo++);
 	            textItems.add(prevText);
 	            prevText = curText;
+	            isParagraphChanged = startParagraph(prevText, sbParagraph, paragraph);
 	            continue;
 	        }
 	        
@@ -93,42 +135,54 @@ public class TextExtractUtil  {
 	        // 2. Check physical geometric intersection
 	        if (prevExpanded.intersects(curBounds))
 	        {
-	            // Calculate hypothetical combined text
-	            String sCombinedText = prevText.getData() + sLineSeparator + curText.getData();
+	            // Calculate hypothetical combined text, only scanning the appended line
+	            String sCurData = String.valueOf(curText.getData());
+	            paragraphNext.copyFrom(paragraph);
+	            paragraphNext.scan(sLineSeparator);
+	            paragraphNext.scan(sCurData);
 	            
 	            // --- FIX FOR INDEXES (3, 4, 5, 6) ---
 	            // Instead of evaluating individual sub-sentences strictly, we look at whether
 	            // the WHOLE accumulating block has substantial sentence content (> 3 words total)
 	            // AND ensure we normalize wide spaces inside the check so formatting doesn't break it.
-	            int totalWordCount = countWords(sCombinedText);
-	            boolean hasWideGap = containsInvalidSpacing(sCombinedText);
+	            int totalWordCount = paragraphNext.getWordCount();
+	            boolean hasWideGap = paragraphNext.hasWideGap();
 	            
 	            if (totalWordCount > 3 && !hasWideGap)
 	            {
 	                // Approved: This forms an active paragraph block containing an index and a sentence.
 	                Rectangle2D rectCombined = combineRect2Ds(prevBounds, curBounds);
-	                prevText.setData(sCombinedText);
+	                sbParagraph.append(sLineSeparator).append(sCurData);
+	                isParagraphChanged = true;
+	                ParagraphScanner swap = paragraph;
+	                paragraph = paragraphNext;
+	                paragraphNext = swap;
 	                prevText.setRect2D(rectCombined);
 	            }
 	            else
 	            {
 	                // Denied: Disconnect if it's just sequential short numbers (e.g., "3" intersecting "4")
 	                // without any main text body, or if it spans entirely different columns (wide gaps).
+	                endParagraph(prevText, sbParagraph, isParagraphChanged);
 	                prevText.setExtract_seq(iSeqNo++);
 	                textItems.add(prevText);
 	                prevText = curText;
+	                isParagraphChanged = startParagraph(prevText, sbParagraph, paragraph);
 	            }
 	        }
 	        else
 	        {
+	            endParagraph(prevText, sbParagraph, isParagraphChanged);
 	            prevText.setExtract_seq(iSeqNo++);
 	            textItems.add(prevText);
 	            prevText = curText;
+	            isParagraphChanged = startParagraph(prevText, sbParagraph, paragraph);
 	        }
 	    }
 	    
 	    if (prevText != null)
 	    {
+	        endParagraph(prevText, sbParagraph, isParagraphChanged);
 	        prevText.setExtract_seq(iSeqNo++);
 	        textItems.add(prevText);
 	    }
@@ -136,20 +190,153 @@ public class TextExtractUtil  {
 	    return textItems;
 	}
 
+	private static boolean startParagraph(ContentItem aText, StringBuilder aSbParagraph, ParagraphScanner aParagraph)
+	{
+		String sData = String.valueOf(aText.getData());
+		aSbParagraph.setLength(0);
+		aSbParagraph.append(sData);
+		aParagraph.reset();
+		aParagraph.scan(sData);
+		return false;
+	}
+	
+	// the combined text is only built once per paragraph
+	private static void endParagraph(ContentItem aText, StringBuilder aSbParagraph, boolean isParagraphChanged)
+	{
+		if(isParagraphChanged)
+			aText.setData(aSbParagraph.toString());
+	}
+	
 	/**
-	 * Validates if a text sequence contains uncomfortably massive wide gaps 
-	 * (3+ spaces) within actual textual phrases, ignoring structural newlines.
+	 * Word count (same as trim().split("\\s+")) and wide gap state (3+ spaces within a
+	 * trimmed line, same as matching ".*\\s{3,}.*" on each line) of a text, updated 
+	 * char by char so that appending a line to a paragraph only scans the appended line.
 	 */
-	private static boolean containsInvalidSpacing(String text) {
-	    if (text == null) return false;
-	    // Split by lines first to ensure we only check horizontal spacing within lines
-	    String[] lines = text.split("[\\n\\r]+");
-	    for (String line : lines) {
-	        if (line.trim().matches(".*\\s{3,}.*")) {
-	            return true;
-	        }
-	    }
-	    return false;
+	private static class ParagraphScanner
+	{
+		//-- word count, words are runs of non \s chars between the 1st and last visible (> ' ') char
+		private int word_count 			= 0;
+		private int pending_words 		= 0; // runs without visible char after the last visible one
+		private boolean is_in_word 		= false;
+		private boolean is_word_visible = false;
+		private boolean is_any_visible 	= false;
+		
+		//-- wide gap of the completed lines and of the current line
+		private boolean is_closed_line_wide = false;
+		private boolean is_line_visible 	= false;
+		private boolean is_line_wide 		= false;
+		private boolean is_line_unmatched 	= false; // has a char not matched by regex '.'
+		private int space_run 				= 0;
+		private int max_space_run 			= 0; // since the last visible char of the line
+		
+		void reset()
+		{
+			word_count = pending_words = 0;
+			is_in_word = is_word_visible = is_any_visible = false;
+			is_closed_line_wide = is_line_visible = is_line_wide = is_line_unmatched = false;
+			space_run = max_space_run = 0;
+		}
+		
+		void copyFrom(ParagraphScanner aOther)
+		{
+			word_count 			= aOther.word_count;
+			pending_words 		= aOther.pending_words;
+			is_in_word 			= aOther.is_in_word;
+			is_word_visible 	= aOther.is_word_visible;
+			is_any_visible 		= aOther.is_any_visible;
+			is_closed_line_wide = aOther.is_closed_line_wide;
+			is_line_visible 	= aOther.is_line_visible;
+			is_line_wide 		= aOther.is_line_wide;
+			is_line_unmatched 	= aOther.is_line_unmatched;
+			space_run 			= aOther.space_run;
+			max_space_run 		= aOther.max_space_run;
+		}
+		
+		void scan(String aText)
+		{
+			for(int i=0; i<aText.length(); i++)
+			{
+				char ch = aText.charAt(i);
+				scanWord(ch);
+				scanSpacing(ch);
+			}
+		}
+		
+		private void scanWord(char ch)
+		{
+			if(isRegexSpace(ch))
+			{
+				if(is_in_word && !is_word_visible && is_any_visible)
+					pending_words++;
+				is_in_word = false;
+			}
+			else
+			{
+				if(!is_in_word)
+				{
+					is_in_word = true;
+					is_word_visible = false;
+				}
+				if(ch > ' ' && !is_word_visible)
+				{
+					is_word_visible = true;
+					word_count += is_any_visible ? pending_words + 1 : 1;
+					pending_words = 0;
+					is_any_visible = true;
+				}
+			}
+		}
+		
+		private void scanSpacing(char ch)
+		{
+			if(ch=='\n' || ch=='\r')
+			{
+				// lines are split by [\n\r]+
+				is_closed_line_wide |= isLineWide();
+				is_line_visible = is_line_wide = is_line_unmatched = false;
+				space_run = max_space_run = 0;
+			}
+			else if(isRegexSpace(ch))
+			{
+				space_run++;
+				max_space_run = Math.max(max_space_run, space_run);
+			}
+			else
+			{
+				space_run = 0;
+				if(ch > ' ')
+				{
+					// a gap is only within the trimmed line when followed by a visible char
+					if(is_line_visible && max_space_run>=3)
+						is_line_wide = true;
+					is_line_visible = true;
+					max_space_run = 0;
+					if(ch=='\u0085' || ch=='\u2028' || ch=='\u2029')
+						is_line_unmatched = true;
+				}
+			}
+		}
+		
+		private boolean isLineWide()
+		{
+			return is_line_wide && !is_line_unmatched;
+		}
+		
+		int getWordCount()
+		{
+			return word_count;
+		}
+		
+		boolean hasWideGap()
+		{
+			return is_closed_line_wide || isLineWide();
+		}
+		
+		// regex \s
+		private static boolean isRegexSpace(char ch)
+		{
+			return ch==' ' || ch=='\t' || ch=='\n' || ch=='\u000B' || ch=='\f' || ch=='\r';
+		}
 	}
 	
 	private static Rectangle2D expandRect2D(Rectangle2D rect, double aExpandW, double aExpandH)
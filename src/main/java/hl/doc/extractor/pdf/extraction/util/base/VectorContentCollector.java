@@ -0,0 +1,148 @@
+package hl.doc.extractor.pdf.extraction.util.base;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.util.Matrix;
+
+import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
+
+public class VectorContentCollector implements ContentCollector {
+
+	final List<Path2D> listVector 	= new ArrayList<>();
+	private Color docBgColor 		= null;
+	private boolean isGroupVectors 	= true;
+	private int iPageNo 			= -1;
+
+	private List<ContentItem> contentItems = null;
+	private ExtractionDeadline deadline = null;
+
+	public VectorContentCollector(boolean isGroupVectors)
+	{
+		this.isGroupVectors = isGroupVectors;
+	}
+
+	@Override
+	public boolean isCollectPaths() {
+		return true;
+	}
+
+	@Override
+	public void startPage(PDPage aPage, int aPageNo) {
+		this.iPageNo = aPageNo;
+	}
+
+	public void setDeadline(ExtractionDeadline aDeadline) {
+		this.deadline = aDeadline;
+	}
+
+	/**
+	 * Visible paths collected, before being stitched into shapes
+	 */
+	public List<Path2D> getPaths() {
+		return listVector;
+	}
+
+	@Override
+	public List<ContentItem> getContentItems() {
+		if(contentItems==null)
+		{
+			contentItems = VectorExtractUtil.toVectorContentItems(iPageNo-1, listVector, isGroupVectors, deadline);
+		}
+		return contentItems;
+	}
+
+    private boolean isEmpty(Path2D aShapePath)
+    {
+    	return aShapePath!=null && aShapePath.getPathIterator(null).isDone();
+    }
+
+	@Override
+	public void processPath(Path2D currentPath, PDGraphicsState gs, boolean stroked, boolean filled) {
+    	 PDColor pdColor = filled ? gs.getNonStrokingColor() : gs.getStrokingColor();
+
+    	if(docBgColor==null)
+    	{
+    		docBgColor = filled ? toAwtColor(pdColor) : Color.WHITE;
+    	}
+
+    	//check if empty
+        if (isEmpty(currentPath)) return;
+
+        Matrix ctm = gs.getCurrentTransformationMatrix();
+
+        // Transform to PDF User Space
+        Shape transformedShape = currentPath.createTransformedShape(ctm.createAffineTransform());
+
+        // Handle Line Thickness
+        if (stroked) {
+            BasicStroke stroke = new BasicStroke(gs.getLineWidth());
+            transformedShape = stroke.createStrokedShape(transformedShape);
+        }
+
+        Rectangle2D bounds = transformedShape.getBounds2D();
+
+        if (bounds.getWidth() > 0 || bounds.getHeight() > 0)
+        {
+        	if(isSimilarColor(docBgColor,toAwtColor(pdColor),10))
+        	{
+        		//Drop since it's not visible to human
+        		//System.out.println(" DROP "+currentPath);
+        	}
+        	else
+        	{
+        		listVector.add(new GeneralPath(currentPath));
+        	}
+
+        }
+	}
+
+	private Color toAwtColor(PDColor aPDColor) {
+		Color color = null;
+		if(aPDColor!=null)
+		{
+			PDColorSpace csStroke 	= aPDColor.getColorSpace();
+    		if(csStroke instanceof PDPattern)
+    		{
+    			//not doing anything
+    		}
+    		else
+    		{
+            	try {
+	            		float[] rgb = csStroke.toRGB(aPDColor.getComponents());
+	            		color = new Color(rgb[0], rgb[1], rgb[2]);
+				} catch (IOException e) {
+					// TODO Auto-generated catch block
+					e.printStackTrace();
+				}
+    		}
+		}
+    	return color;
+	}
+
+	private boolean isSimilarColor(Color aColor1, Color aColor2, int aTolerance) {
+
+		if(aColor1!=null && aColor2!=null)
+		{
+			int iRDiff = Math.abs(aColor1.getRed() - aColor2.getRed());
+			int iGDiff = Math.abs(aColor1.getGreen() - aColor2.getGreen());
+			int iBDiff = Math.abs(aColor1.getBlue() - aColor2.getBlue());
+			return (iRDiff<aTolerance
+					&& iGDiff<aTolerance
+					&& iBDiff <aTolerance);
+		}
+    	return false;
+	}
+}
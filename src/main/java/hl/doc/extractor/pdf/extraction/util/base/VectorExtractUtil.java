@@ -1,11 +1,7 @@
 package hl.doc.extractor.pdf.extraction.util.base;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
 import java.awt.Rectangle;
-import java.awt.Shape;
 import java.awt.geom.Area;
-import java.awt.geom.GeneralPath;
 import java.awt.geom.Path2D;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
@@ -15,19 +11,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
-import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
-import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.graphics.color.PDColor;
-import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
-import org.apache.pdfbox.pdmodel.graphics.color.PDPattern;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
-import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
-import org.apache.pdfbox.util.Matrix;
 
 import hl.doc.extractor.pdf.extraction.pojo.ContentItem;
 import hl.doc.extractor.pdf.extraction.pojo.VectorData;
@@ -37,169 +23,42 @@ import hl.doc.extractor.pdf.extraction.pojo.ContentItem.Type;
 public class VectorExtractUtil  {
 
     public static List<ContentItem> extractVectorContent(PDDocument doc, int pageIndex, boolean isGroupVectors) throws IOException {
-        
-        // Silence verbose PDFBox logging
-        Logger.getLogger("org.apache.pdfbox.contentstream.operator.graphics").setLevel(Level.SEVERE);
 
-        int grouping_bound_expand_len 		= 4;
-        float grouping_intersect_threshold 	= 0.80f;
-        
         PDPage page = doc.getPage(pageIndex);
-        //float pgWidth 	= page.getMediaBox().getWidth();
-        float pgHeight 	= page.getMediaBox().getHeight();
-
-        class DrawingPositionEngine extends PDFGraphicsStreamEngine {
-
-            final List<Path2D> listVector 	= new ArrayList<>();
-            private Path2D currentPath 		= new GeneralPath();
-            private Color docBgColor 		= null;
 
-            DrawingPositionEngine(PDPage page) {
-                super(page);
-            }
+        PageContentEngine engine = new PageContentEngine(page, pageIndex + 1);
+        VectorContentCollector vectorCollector = new VectorContentCollector(isGroupVectors);
+        engine.addCollector(vectorCollector);
+        engine.processPage();
 
-            @Override public void moveTo(float x, float y) 
-            { 
-            	currentPath.moveTo(x, pgHeight - y); 
-            }
-            @Override public void lineTo(float x, float y) 
-            { 
-            	currentPath.lineTo(x, pgHeight - y); 
-            }
-            @Override public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) 
-            {
-            	y1 = pgHeight - y1;
-            	y2 = pgHeight - y2;
-            	y3 = pgHeight - y3;
-                currentPath.curveTo(x1, y1, x2, y2, x3, y3); 
-            }
-            
-            @Override public void closePath() { 
-            	currentPath.closePath(); 
-            }
-            
-            @Override public Point2D getCurrentPoint() 
-            { 	
-            	Point2D pt = currentPath.getCurrentPoint();
-            	pt.setLocation(pt.getX(), pgHeight - pt.getY());
-            	return pt; 
-            }
-            @Override public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) 
-            {
-                moveTo((float)p0.getX(), (float)p0.getY());
-                lineTo((float)p1.getX(), (float)p1.getY());
-                lineTo((float)p2.getX(), (float)p2.getY());
-                lineTo((float)p3.getX(), (float)p3.getY());
-                closePath();
-            }
-            
-            @Override public void strokePath() { savePath(true, false); }
-            @Override public void fillPath(int windingRule) { savePath(false, true); }
-            @Override public void fillAndStrokePath(int windingRule) { savePath(true, true); }
-            //
-            @Override public void endPath() { currentPath.reset(); }
-
-            private boolean isEmpty(Path2D aShapePath)
-            {
-            	return aShapePath!=null && aShapePath.getPathIterator(null).isDone();
-            }
-            private void savePath(boolean stroked, boolean filled) {
-            	 PDGraphicsState gs = getGraphicsState();
-            	 PDColor pdColor = filled ? gs.getNonStrokingColor() : gs.getStrokingColor();
-            	
-            	if(docBgColor==null)
-            	{
-            		docBgColor = filled ? toAwtColor(pdColor) : Color.WHITE;
-            	}
-            	
-            	//check if empty
-                if (isEmpty(currentPath)) return;
+        return vectorCollector.getContentItems();
+    }
 
-                Matrix ctm = gs.getCurrentTransformationMatrix();
+    public static List<ContentItem> toVectorContentItems(int pageIndex, List<Path2D> aOrigVectorList, boolean isGroupVectors) {
+    	return toVectorContentItems(pageIndex, aOrigVectorList, isGroupVectors, null);
+    }
 
-                // Transform to PDF User Space
-                Shape transformedShape = currentPath.createTransformedShape(ctm.createAffineTransform());
+    /**
+     * Stitching & grouping stop once aDeadline expires, only the shapes stitched so far are returned.
+     */
+    public static List<ContentItem> toVectorContentItems(int pageIndex, List<Path2D> aOrigVectorList, boolean isGroupVectors,
+    		ExtractionDeadline aDeadline) {
 
-                // Handle Line Thickness
-                if (stroked) {
-                    BasicStroke stroke = new BasicStroke(gs.getLineWidth());
-                    transformedShape = stroke.createStrokedShape(transformedShape);
-                }
+        int grouping_bound_expand_len 		= 4;
+        float grouping_intersect_threshold 	= 0.80f;
 
-                Rectangle2D bounds = transformedShape.getBounds2D();
-                
-                if (bounds.getWidth() > 0 || bounds.getHeight() > 0) 
-                {
-                	if(isSimilarColor(docBgColor,toAwtColor(pdColor),10))
-                	{
-                		//Drop since it's not visible to human
-                		//System.out.println(" DROP "+currentPath);
-                	}
-                	else
-                	{
-                		listVector.add(new GeneralPath(currentPath));
-                	}
+        List<Path2D> listVectors = stitchListIntoShapes(aOrigVectorList, aDeadline);
 
-                }
-                currentPath.reset();
-            }
-            
-    		private Color toAwtColor(PDColor aPDColor) {
-    			Color color = null;
-    			if(aPDColor!=null)
-    			{
-	    			PDColorSpace csStroke 	= aPDColor.getColorSpace();
-            		if(csStroke instanceof PDPattern)
-            		{
-            			//not doing anything
-            		}
-            		else
-            		{
-		            	try {
-			            		float[] rgb = csStroke.toRGB(aPDColor.getComponents());
-			            		color = new Color(rgb[0], rgb[1], rgb[2]);
-						} catch (IOException e) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
-            		}
-    			}
-            	return color;
-    		}
-    		
-    		private boolean isSimilarColor(Color aColor1, Color aColor2, int aTolerance) {
-    			
-    			if(aColor1!=null && aColor2!=null)
-    			{
-	    			int iRDiff = Math.abs(aColor1.getRed() - aColor2.getRed());
-	    			int iGDiff = Math.abs(aColor1.getGreen() - aColor2.getGreen());
-	    			int iBDiff = Math.abs(aColor1.getBlue() - aColor2.getBlue());
-	    			return (iRDiff<aTolerance 
-	    					&& iGDiff<aTolerance 
-	    					&& iBDiff <aTolerance);
-    			}
-            	return false;
-    		}
-            
-            @Override public void clip(int windingRule) {}
-            @Override public void shadingFill(COSName shadingName) throws IOException {}
-            @Override public void drawImage(PDImage pdImage) throws IOException {}
-        }
 
-        DrawingPositionEngine engine = new DrawingPositionEngine(page);
-        engine.processPage(page);
-        
-        List<Path2D> listVectors = stitchListIntoShapes(engine.listVector);
-        
-    	
-        if(isGroupVectors)
+        // out of time, the stitched shapes are kept ungrouped
+        if(isGroupVectors && !ExtractionDeadline.checkExpired(aDeadline))
         {
         	//System.out.println("Before stitchListIntoShapes: "+listVectors.size());
         	//System.out.println("AFTER stitchListIntoShapes: "+listVectors.size());
-        	
-        	listVectors = groupByBounds(pageIndex, listVectors, grouping_bound_expand_len, grouping_intersect_threshold);
+
+        	listVectors = groupByBounds(pageIndex, listVectors, grouping_bound_expand_len, grouping_intersect_threshold, aDeadline);
         }
-        
+
         //////////////////////////////////////////////////
         ///
         // Convert List<GeneralPath> to List<ContentItem>
@@ -213,11 +72,17 @@ public class VectorExtractUtil  {
 	        item.setExtract_seq(iExtractSeq++);
 	        contentItems.add(item);
         }
-        
+
         return contentItems;
     }
 
     public static List<Path2D> groupByBounds(int aPageIndex, List<Path2D> aOrigVectorList, int aExpandedPixel, float aMinIntersectThreshold)
+    {
+    	return groupByBounds(aPageIndex, aOrigVectorList, aExpandedPixel, aMinIntersectThreshold, null);
+    }
+
+    public static List<Path2D> groupByBounds(int aPageIndex, List<Path2D> aOrigVectorList, int aExpandedPixel, float aMinIntersectThreshold,
+    		ExtractionDeadline aDeadline)
     {
         List<Path2D> listVectors = new ArrayList<>();
         
@@ -260,6 +125,13 @@ public class VectorExtractUtil  {
         	if(vectors[i]==null)
 				continue;
         	
+        	if(ExtractionDeadline.checkExpired(aDeadline))
+        	{
+        		// out of time, the rest are kept ungrouped
+        		listVectors.add(vectors[i]);
+        		continue;
+        	}
+        	
         	for(int z=0; z<i; z++)
         	{
         		if(vectors[z]==null)
@@ -293,6 +165,10 @@ public class VectorExtractUtil  {
     }
     
     public static List<Path2D> stitchListIntoShapes(List<Path2D> aOrigVectorList) {
+    	return stitchListIntoShapes(aOrigVectorList, null);
+    }
+
+    public static List<Path2D> stitchListIntoShapes(List<Path2D> aOrigVectorList, ExtractionDeadline aDeadline) {
         List<Path2D> resultShapes = new ArrayList<>();
         
         if (aOrigVectorList == null || aOrigVectorList.isEmpty()) {
@@ -305,6 +181,10 @@ public class VectorExtractUtil  {
         // 2. Keep processing until all lines belong to a shape
         while (!remainingLines.isEmpty()) {
             
+            if (ExtractionDeadline.checkExpired(aDeadline)) {
+                break;
+            }
+            
             Path2D combinedShape = new Path2D.Double();
             List<Point2D> groupEndpoints = new ArrayList<>(); // Tracks all endpoints in this cluster
 
@@ -319,7 +199,7 @@ public class VectorExtractUtil  {
             boolean foundNewConnection = true;
 
             // 4. Keep searching the remaining lines until no more connections are found for this cluster
-            while (foundNewConnection) {
+            while (foundNewConnection && !ExtractionDeadline.checkExpired(aDeadline)) {
                 foundNewConnection = false;
 
                 // Loop backwards so we can safely remove items from the list while iterating